@@ -32,7 +32,7 @@ public class StoreController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<StoreDTO> getStoreById(@PathVariable String id) {
+    public ResponseEntity<StoreDTO> getStoreById(@PathVariable Long id) {
         return ResponseEntity.ok(storeService.getStoreById(id));
     }
 
@@ -56,7 +56,7 @@ public class StoreController {
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('MERCHANT')")
     public ResponseEntity<StoreDTO> updateStore(
-            @PathVariable String id,
+            @PathVariable Long id,
             @RequestBody StoreDTO storeDTO,
             @AuthenticationPrincipal Jwt jwt) {
         String merchantId = jwt.getSubject();
@@ -66,7 +66,7 @@ public class StoreController {
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('MERCHANT')")
     public ResponseEntity<Void> deleteStore(
-            @PathVariable String id,
+            @PathVariable Long id,
             @AuthenticationPrincipal Jwt jwt) {
         String merchantId = jwt.getSubject();
         storeService.deleteStore(id, merchantId);
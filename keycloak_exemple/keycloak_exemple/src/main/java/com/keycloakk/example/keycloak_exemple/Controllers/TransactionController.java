@@ -1,21 +1,40 @@
 package com.keycloakk.example.keycloak_exemple.Controllers;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.keycloakk.example.keycloak_exemple.dtos.StoreSalesSummaryDTO;
+import com.keycloakk.example.keycloak_exemple.dtos.TransactionBatchItemDTO;
+import com.keycloakk.example.keycloak_exemple.dtos.TransactionBatchResultDTO;
 import com.keycloakk.example.keycloak_exemple.dtos.TransactionCreationDTO;
 import com.keycloakk.example.keycloak_exemple.dtos.TransactionDTO;
+import com.keycloakk.example.keycloak_exemple.dtos.TransactionPageDTO;
+import com.keycloakk.example.keycloak_exemple.dtos.TransactionStatusUpdateDTO;
+import com.keycloakk.example.keycloak_exemple.dtos.TransactionStatusUpdateResultDTO;
 import com.keycloakk.example.keycloak_exemple.model.TransactionStatus;
 import com.keycloakk.example.keycloak_exemple.model.UserRole;
+import com.keycloakk.example.keycloak_exemple.services.TransactionBatchService;
+import com.keycloakk.example.keycloak_exemple.services.TransactionExportService;
+import com.keycloakk.example.keycloak_exemple.services.TransactionIdempotencyService;
 import com.keycloakk.example.keycloak_exemple.services.TransactionService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.zip.GZIPOutputStream;
 import java.util.List;
 
 @RestController
@@ -24,21 +43,40 @@ import java.util.List;
 public class TransactionController {
 
     private final TransactionService transactionService;
+    private final TransactionBatchService transactionBatchService;
+    private final TransactionExportService transactionExportService;
+    private final TransactionIdempotencyService transactionIdempotencyService;
+    private final ObjectMapper objectMapper;
 
+    // Retries carrying the same Idempotency-Key get the original response back instead of a second purchase
     @PostMapping
     @PreAuthorize("hasRole('CUSTOMER')")
     public ResponseEntity<TransactionDTO> createTransaction(
             @Valid @RequestBody TransactionCreationDTO transactionCreationDTO,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @AuthenticationPrincipal Jwt jwt) {
         String customerId = jwt.getSubject();
-        TransactionDTO createdTransaction = transactionService.createTransaction(transactionCreationDTO, customerId);
+        TransactionDTO createdTransaction = transactionIdempotencyService.createTransaction(transactionCreationDTO, customerId, idempotencyKey);
         return new ResponseEntity<>(createdTransaction, HttpStatus.CREATED);
     }
 
+    // Accepts a JSON array or an NDJSON stream (one transaction per line), read item by item
+    @PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @PreAuthorize("hasRole('MERCHANT')")
+    public ResponseEntity<TransactionBatchResultDTO> createTransactionsBatch(
+            HttpServletRequest request,
+            @AuthenticationPrincipal Jwt jwt) throws IOException {
+        String merchantId = jwt.getSubject();
+        try (MappingIterator<TransactionBatchItemDTO> items = objectMapper.readerFor(TransactionBatchItemDTO.class)
+                .readValues(request.getInputStream())) {
+            return ResponseEntity.ok(transactionBatchService.createTransactions(items, merchantId));
+        }
+    }
+
     @GetMapping("/{id}")
     @PreAuthorize("hasAnyRole('CUSTOMER', 'MERCHANT', 'ADMIN')")
     public ResponseEntity<TransactionDTO> getTransactionById(
-            @PathVariable String id,
+            @PathVariable Long id,
             @AuthenticationPrincipal Jwt jwt) {
         String userId = jwt.getSubject();
         // Adapter cette ligne pour extraire le rôle du JWT selon votre configuration
@@ -57,35 +95,98 @@ public class TransactionController {
 
     @GetMapping("/customer")
     @PreAuthorize("hasRole('CUSTOMER')")
-    public ResponseEntity<List<TransactionDTO>> getTransactionsByCustomer(@AuthenticationPrincipal Jwt jwt) {
+    public ResponseEntity<TransactionPageDTO> getTransactionsByCustomer(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
+            @AuthenticationPrincipal Jwt jwt) {
         String customerId = jwt.getSubject();
-        return ResponseEntity.ok(transactionService.getTransactionsByCustomer(customerId));
+        return ResponseEntity.ok(transactionService.getTransactionsByCustomer(customerId, cursor, limit));
     }
 
     @GetMapping("/store/{storeId}")
     @PreAuthorize("hasRole('MERCHANT')")
-    public ResponseEntity<List<TransactionDTO>> getTransactionsByStore(
-            @PathVariable String storeId,
+    public ResponseEntity<TransactionPageDTO> getTransactionsByStore(
+            @PathVariable Long storeId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
             @AuthenticationPrincipal Jwt jwt) {
         String merchantId = jwt.getSubject();
-        return ResponseEntity.ok(transactionService.getTransactionsByStore(storeId, merchantId));
+        return ResponseEntity.ok(transactionService.getTransactionsByStore(storeId, merchantId, cursor, limit));
     }
 
     @GetMapping("/store/{storeId}/date-range")
     @PreAuthorize("hasRole('MERCHANT')")
-    public ResponseEntity<List<TransactionDTO>> getTransactionsByDateRange(
-            @PathVariable String storeId,
+    public ResponseEntity<TransactionPageDTO> getTransactionsByDateRange(
+            @PathVariable Long storeId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
+            @AuthenticationPrincipal Jwt jwt) {
+        String merchantId = jwt.getSubject();
+        return ResponseEntity.ok(transactionService.getTransactionsByDateRange(start, end, storeId, merchantId, cursor, limit));
+    }
+
+    @GetMapping("/store/{storeId}/summary")
+    @PreAuthorize("hasRole('MERCHANT')")
+    public ResponseEntity<StoreSalesSummaryDTO> getStoreSummary(
+            @PathVariable Long storeId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @AuthenticationPrincipal Jwt jwt) {
+        String merchantId = jwt.getSubject();
+        return ResponseEntity.ok(transactionService.getStoreSummary(storeId, from, to, merchantId));
+    }
+
+    // Streams the rows as they are read (constant memory), optionally gzip-compressed
+    @GetMapping("/store/{storeId}/export")
+    @PreAuthorize("hasRole('MERCHANT')")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
+            @PathVariable Long storeId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @AuthenticationPrincipal Jwt jwt) {
+        String merchantId = jwt.getSubject();
+        TransactionExportService.Format exportFormat = TransactionExportService.Format.parse(format);
+        transactionExportService.checkStoreOwnership(storeId, merchantId);
+
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                try (GZIPOutputStream gzipOut = new GZIPOutputStream(out, 64 * 1024)) {
+                    transactionExportService.export(storeId, start, end, exportFormat, gzipOut);
+                }
+            } else {
+                transactionExportService.export(storeId, start, end, exportFormat, out);
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("transactions-store-" + storeId + "." + exportFormat.getExtension())
+                        .build().toString());
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    // Bulk settlement, e.g. thousands of PENDING transactions moved to COMPLETED in one call
+    @PatchMapping("/status")
+    @PreAuthorize("hasRole('MERCHANT')")
+    public ResponseEntity<TransactionStatusUpdateResultDTO> updateTransactionStatuses(
+            @Valid @RequestBody TransactionStatusUpdateDTO request,
             @AuthenticationPrincipal Jwt jwt) {
         String merchantId = jwt.getSubject();
-        return ResponseEntity.ok(transactionService.getTransactionsByDateRange(start, end, storeId, merchantId));
+        return ResponseEntity.ok(transactionService.updateTransactionStatuses(request, merchantId));
     }
 
     @PatchMapping("/{id}/status")
     @PreAuthorize("hasRole('MERCHANT')")
     public ResponseEntity<TransactionDTO> updateTransactionStatus(
-            @PathVariable String id,
+            @PathVariable Long id,
             @RequestParam TransactionStatus status,
             @AuthenticationPrincipal Jwt jwt) {
         String merchantId = jwt.getSubject();
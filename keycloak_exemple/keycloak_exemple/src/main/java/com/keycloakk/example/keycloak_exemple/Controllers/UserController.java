@@ -1,9 +1,12 @@
 package com.keycloakk.example.keycloak_exemple.Controllers;
 
 
+import com.keycloakk.example.keycloak_exemple.dtos.KeycloakOutboxStatusDTO;
 import com.keycloakk.example.keycloak_exemple.dtos.UserDTO;
 import com.keycloakk.example.keycloak_exemple.model.UserRole;
-import com.keycloakk.example.keycloak_exemple.services.KeycloakService;
+import com.keycloakk.example.keycloak_exemple.services.KeycloakOutboxService;
+import com.keycloakk.example.keycloak_exemple.services.KeycloakUserSyncService;
+import com.keycloakk.example.keycloak_exemple.services.RealmRoleCache;
 import com.keycloakk.example.keycloak_exemple.services.UserService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -18,10 +21,12 @@ import java.util.List;
 public class UserController {
 
     private final UserService userService;
-    private final KeycloakService keycloakService; // Add this field
+    private final KeycloakUserSyncService keycloakUserSyncService;
+    private final KeycloakOutboxService keycloakOutboxService;
+    private final RealmRoleCache realmRoleCache;
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<UserDTO> getUserById(@PathVariable String id) {
+    public ResponseEntity<UserDTO> getUserById(@PathVariable Long id) {
         return ResponseEntity.ok(userService.getUserById(id));
     }
 
@@ -45,22 +50,38 @@ public class UserController {
 
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<UserDTO> updateUser(@PathVariable String id, @RequestBody UserDTO userDTO) {
+    public ResponseEntity<UserDTO> updateUser(@PathVariable Long id, @RequestBody UserDTO userDTO) {
         return ResponseEntity.ok(userService.updateUser(id, userDTO));
     }
 
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Void> deleteUser(@PathVariable String id) {
+    public ResponseEntity<Void> deleteUser(@PathVariable Long id) {
         userService.deleteUser(id);
         return ResponseEntity.noContent().build();
     }
     // Add this new endpoint
     @GetMapping("/sync-users")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<String> syncUsers() {
-        keycloakService.synchronizeKeycloakUsers();
+    public ResponseEntity<String> syncUsers(@RequestParam(defaultValue = "false") boolean incremental) {
+        if (incremental) {
+            keycloakUserSyncService.synchronizeIncrementally();
+        } else {
+            keycloakUserSyncService.synchronizeKeycloakUsers();
+        }
         return ResponseEntity.ok("User synchronization completed");
     }
-}
 
+    @GetMapping("/keycloak-operations")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<KeycloakOutboxStatusDTO> getKeycloakOperations() {
+        return ResponseEntity.ok(keycloakOutboxService.getStatus());
+    }
+
+    @PostMapping("/role-cache/refresh")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> refreshRoleCache() {
+        realmRoleCache.refresh();
+        return ResponseEntity.noContent().build();
+    }
+}
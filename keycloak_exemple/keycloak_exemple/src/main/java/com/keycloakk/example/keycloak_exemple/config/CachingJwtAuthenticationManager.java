@@ -0,0 +1,147 @@
+package com.keycloakk.example.keycloak_exemple.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationProvider;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Authentification des jetons JWT avec un cache optionnel des jetons déjà vérifiés. Un même jeton
+ * présenté plusieurs fois ne repasse ni par la vérification de signature ni par la conversion des
+ * rôles. La clé est l'empreinte SHA-256 du jeton (le jeton lui-même n'est jamais utilisé comme clé)
+ * et chaque entrée expire au plus tard à l'expiration du jeton. Seuls le Jwt décodé et les autorités
+ * sont conservés: chaque requête reçoit une nouvelle authentification portant ses propres détails.
+ *
+ * Le cache est borné en poids. Le poids d'une entrée est dérivé de sa taille retenue mesurée avec JOL
+ * (clé, Jwt décodé et autorités, plus ~128 octets pour le noeud Caffeine et la table; JVM 64 bits,
+ * compressed oops) sur des jetons au format Keycloak signés RS256, de 1 à 60 rôles et de 1 à 5 Ko (voir
+ * CachingJwtAuthenticationManagerFootprintTests): environ 1,75 octet par caractère du jeton (valeur brute +
+ * claims décodés), ~160 octets par autorité (le rôle figure aussi dans les claims) et ~3 Ko fixes (en-têtes,
+ * claims standard, structures). Le poids retenu, 2 octets par caractère + 160 octets par autorité + 3 Ko,
+ * majore la mesure de 3 à 10 %.
+ */
+public class CachingJwtAuthenticationManager implements AuthenticationManager {
+
+    private static final int BYTES_PER_TOKEN_CHAR = 2;
+    private static final int BYTES_PER_AUTHORITY = 160;
+    private static final int ENTRY_OVERHEAD_BYTES = 3 * 1024;
+
+    private final JwtAuthenticationProvider delegate;
+    private final Cache<String, VerifiedJwt> verifiedTokens;
+
+    public CachingJwtAuthenticationManager(JwtDecoder jwtDecoder,
+                                           JwtAuthenticationConverter jwtAuthenticationConverter,
+                                           boolean enabled,
+                                           long maxBytes,
+                                           Duration maxTtl,
+                                           MeterRegistry meterRegistry) {
+        this.delegate = new JwtAuthenticationProvider(jwtDecoder);
+        this.delegate.setJwtAuthenticationConverter(jwtAuthenticationConverter);
+        if (!enabled) {
+            this.verifiedTokens = null;
+            return;
+        }
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .<String, VerifiedJwt>weigher((key, verified) -> weigh(verified))
+                .expireAfter(new Expiry<String, VerifiedJwt>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedJwt verified, long currentTime) {
+                        Instant expiresAt = verified.jwt().getExpiresAt();
+                        Duration remaining = expiresAt == null ? maxTtl : Duration.between(Instant.now(), expiresAt);
+                        if (remaining.isNegative()) {
+                            return 0;
+                        }
+                        return (remaining.compareTo(maxTtl) < 0 ? remaining : maxTtl).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedJwt verified, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedJwt verified, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "verifiedToken");
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        if (verifiedTokens == null || !(authentication instanceof BearerTokenAuthenticationToken bearer)) {
+            return delegate.authenticate(authentication);
+        }
+        String key = sha256(bearer.getToken());
+        VerifiedJwt cached = verifiedTokens.getIfPresent(key);
+        if (cached != null) {
+            // Nouvelle authentification à chaque requête, comme JwtAuthenticationProvider: rien n'est partagé
+            // entre requêtes hormis le Jwt immuable et les autorités
+            JwtAuthenticationToken authenticated = new JwtAuthenticationToken(cached.jwt(), cached.authorities(), cached.name());
+            authenticated.setDetails(bearer.getDetails());
+            return authenticated;
+        }
+        // Les échecs ne sont jamais mis en cache: l'exception remonte avant l'insertion
+        Authentication verified = delegate.authenticate(bearer);
+        // Jeton déjà expiré mais accepté dans la tolérance d'horloge du décodeur: rien à mettre en cache
+        if (verified instanceof JwtAuthenticationToken jwtAuthentication && !isExpired(jwtAuthentication.getToken())) {
+            verifiedTokens.put(key, VerifiedJwt.of(jwtAuthentication));
+        }
+        return verified;
+    }
+
+    private static boolean isExpired(Jwt jwt) {
+        return jwt.getExpiresAt() != null && !jwt.getExpiresAt().isAfter(Instant.now());
+    }
+
+    static int weigh(VerifiedJwt verified) {
+        return verified.jwt().getTokenValue().length() * BYTES_PER_TOKEN_CHAR
+                + verified.authorities().size() * BYTES_PER_AUTHORITY
+                + ENTRY_OVERHEAD_BYTES;
+    }
+
+    // Nombre d'entrées après application des expirations et évictions en attente
+    long cachedTokenCount() {
+        verifiedTokens.cleanUp();
+        return verifiedTokens.estimatedSize();
+    }
+
+    record VerifiedJwt(Jwt jwt, Collection<GrantedAuthority> authorities, String name) {
+
+        static VerifiedJwt of(JwtAuthenticationToken authentication) {
+            return new VerifiedJwt(authentication.getToken(), List.copyOf(authentication.getAuthorities()), authentication.getName());
+        }
+    }
+
+    static String sha256(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+}
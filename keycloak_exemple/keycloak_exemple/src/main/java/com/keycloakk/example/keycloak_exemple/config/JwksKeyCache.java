@@ -0,0 +1,154 @@
+package com.keycloakk.example.keycloak_exemple.config;
+
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Cache local des clés publiques (JWKS) du realm utilisées pour valider les jetons JWT.
+ * Au démarrage, seules les clés de l'instantané sur disque sont chargées: aucun appel HTTP ne bloque
+ * le démarrage. Les clés sont ensuite lues depuis Keycloak en arrière-plan, dès que le planificateur
+ * démarre puis à intervalle régulier, et de nouveau à la rencontre d'un kid inconnu (rotation de clés,
+ * ou première requête avant le premier chargement). Si Keycloak est indisponible, la validation continue
+ * avec les dernières clés connues.
+ */
+@Component
+public class JwksKeyCache implements JWKSource<SecurityContext> {
+
+    private final URI jwksUri;
+    private final Path snapshotFile;
+    private final Duration timeout;
+    private final Duration minRefreshInterval;
+    private final HttpClient httpClient;
+    private final Timer successfulFetches;
+    private final Timer failedFetches;
+
+    private volatile JWKSet keys = new JWKSet();
+    private volatile long loadedAt;
+    private volatile long lastFetchAttempt;
+
+    public JwksKeyCache(MeterRegistry meterRegistry,
+                        @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}") String issuerUri,
+                        @Value("${security.jwks.snapshot-file:${java.io.tmpdir}/keycloak-jwks.json}") Path snapshotFile,
+                        @Value("${security.jwks.timeout:PT2S}") Duration timeout,
+                        @Value("${security.jwks.min-refresh-interval:PT30S}") Duration minRefreshInterval) {
+        this.jwksUri = URI.create(issuerUri + "/protocol/openid-connect/certs");
+        this.snapshotFile = snapshotFile;
+        this.timeout = timeout;
+        this.minRefreshInterval = minRefreshInterval;
+        this.httpClient = HttpClient.newBuilder().connectTimeout(timeout).build();
+        this.successfulFetches = Timer.builder("security.jwks.fetch").tag("outcome", "success").register(meterRegistry);
+        this.failedFetches = Timer.builder("security.jwks.fetch").tag("outcome", "failure").register(meterRegistry);
+        Gauge.builder("security.jwks.age", this, cache -> cache.loadedAt == 0 ? Double.NaN
+                        : (System.currentTimeMillis() - cache.loadedAt) / 1000.0)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("security.jwks.keys", this, cache -> cache.keys.size()).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void preload() {
+        loadSnapshot();
+    }
+
+    // Premier chargement depuis Keycloak dès le démarrage du planificateur, hors du chemin de démarrage
+    @Scheduled(fixedDelayString = "${security.jwks.refresh-interval:PT5M}", initialDelay = 0)
+    public void scheduledRefresh() {
+        refresh();
+    }
+
+    @Override
+    public List<JWK> get(JWKSelector jwkSelector, SecurityContext context) throws KeySourceException {
+        List<JWK> matches = jwkSelector.select(keys);
+        // Kid inconnu: probablement une rotation de clés, rechargement limité à un par intervalle minimal.
+        // Nouvelle sélection dans tous les cas: un chargement concurrent a pu aboutir pendant l'attente du verrou
+        if (matches.isEmpty()) {
+            refreshIfAllowed();
+            matches = jwkSelector.select(keys);
+        }
+        return matches;
+    }
+
+    // Vérifié sous verrou: des requêtes concurrentes avec le même kid inconnu ne déclenchent qu'un seul chargement
+    private synchronized boolean refreshIfAllowed() {
+        if (System.currentTimeMillis() - lastFetchAttempt < minRefreshInterval.toMillis()) {
+            return false;
+        }
+        return refresh();
+    }
+
+    synchronized boolean refresh() {
+        lastFetchAttempt = System.currentTimeMillis();
+        long start = System.nanoTime();
+        try {
+            HttpRequest request = HttpRequest.newBuilder(jwksUri).timeout(timeout).GET().build();
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            if (response.statusCode() != 200) {
+                throw new IOException("HTTP " + response.statusCode());
+            }
+            JWKSet fetched = JWKSet.parse(response.body());
+            keys = fetched;
+            loadedAt = System.currentTimeMillis();
+            successfulFetches.record(Duration.ofNanos(System.nanoTime() - start));
+            writeSnapshot(fetched);
+            return true;
+        } catch (IOException | ParseException e) {
+            failedFetches.record(Duration.ofNanos(System.nanoTime() - start));
+            System.out.println("Échec du chargement des clés JWKS depuis " + jwksUri + ": " + e.getMessage()
+                    + " (clés conservées: " + keys.size() + ")");
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void loadSnapshot() {
+        if (!Files.isReadable(snapshotFile)) {
+            return;
+        }
+        try {
+            keys = JWKSet.parse(Files.readString(snapshotFile, StandardCharsets.UTF_8));
+            loadedAt = Files.getLastModifiedTime(snapshotFile).toMillis();
+            System.out.println("Clés JWKS chargées depuis l'instantané " + snapshotFile + ": " + keys.size());
+        } catch (IOException | ParseException e) {
+            System.out.println("Instantané JWKS illisible, ignoré: " + e.getMessage());
+        }
+    }
+
+    // Écriture dans un fichier temporaire puis déplacement atomique: jamais d'instantané tronqué
+    private void writeSnapshot(JWKSet jwkSet) {
+        try {
+            Path directory = snapshotFile.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, "jwks", ".tmp");
+            Files.writeString(temp, jwkSet.toString(true), StandardCharsets.UTF_8);
+            Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.out.println("Impossible d'écrire l'instantané JWKS " + snapshotFile + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.keycloakk.example.keycloak_exemple.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.http.Outcome;
+import jakarta.ws.rs.ProcessingException;
+import jakarta.ws.rs.client.Invocation;
+import jakarta.ws.rs.core.Response;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.jboss.resteasy.client.jaxrs.engines.ApacheHttpClient43Engine;
+import org.jboss.resteasy.client.jaxrs.internal.ClientInvocation;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Moteur HTTP du client d'administration Keycloak qui mesure la latence de chaque appel, par méthode,
+ * endpoint, statut HTTP et issue. La mesure est enregistrée dans un bloc finally: les appels qui échouent
+ * sans réponse (délai dépassé, connexion refusée, pool saturé) sont comptés avec l'issue TIMEOUT ou IO_ERROR,
+ * ce qu'un filtre de réponse JAX-RS ne permet pas. Les identifiants présents dans le chemin sont remplacés
+ * par des gabarits afin de garder un nombre de séries borné.
+ */
+public class KeycloakClientMetricsEngine extends ApacheHttpClient43Engine {
+
+    private static final Pattern UUID_SEGMENT = Pattern.compile("[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+
+    private final MeterRegistry meterRegistry;
+
+    public KeycloakClientMetricsEngine(CloseableHttpClient httpClient, MeterRegistry meterRegistry) {
+        super(httpClient, true);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Response invoke(Invocation invocation) {
+        ClientInvocation request = (ClientInvocation) invocation;
+        long start = System.nanoTime();
+        String status = "NONE";
+        String outcome = "IO_ERROR";
+        try {
+            Response response = super.invoke(invocation);
+            status = String.valueOf(response.getStatus());
+            outcome = Outcome.forStatus(response.getStatus()).name();
+            return response;
+        } catch (ProcessingException e) {
+            outcome = outcomeOf(e);
+            throw e;
+        } finally {
+            Timer.builder("keycloak.admin.requests")
+                    .tag("method", request.getMethod())
+                    .tag("uri", normalize(request.getUri().getPath()))
+                    .tag("status", status)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Délais de connexion, de lecture et d'attente du pool: InterruptedIOException et ses sous-classes
+    static String outcomeOf(ProcessingException e) {
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof InterruptedIOException) {
+                return "TIMEOUT";
+            }
+        }
+        return "IO_ERROR";
+    }
+
+    // /admin/realms/demo/users/<uuid>/role-mappings/realm -> /admin/realms/{realm}/users/{id}/role-mappings/realm
+    static String normalize(String path) {
+        String[] segments = path.split("/");
+        StringBuilder normalized = new StringBuilder();
+        String previous = "";
+        for (String segment : segments) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            String value = segment;
+            if (previous.equals("realms")) {
+                value = "{realm}";
+            } else if (previous.equals("roles")) {
+                value = "{role}";
+            } else if (UUID_SEGMENT.matcher(segment).matches()) {
+                value = "{id}";
+            }
+            normalized.append('/').append(value);
+            previous = segment;
+        }
+        return normalized.length() == 0 ? "/" : normalized.toString();
+    }
+}
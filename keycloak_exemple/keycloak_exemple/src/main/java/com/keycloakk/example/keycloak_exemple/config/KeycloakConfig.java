@@ -1,13 +1,29 @@
 package com.keycloakk.example.keycloak_exemple.config;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.jboss.resteasy.client.jaxrs.ResteasyClient;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
 import org.keycloak.OAuth2Constants;
+import org.keycloak.admin.client.JacksonProvider;
 import org.keycloak.admin.client.Keycloak;
 import org.keycloak.admin.client.KeycloakBuilder;
+import org.keycloak.admin.client.resource.RealmResource;
+import org.keycloak.admin.client.resource.UsersResource;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
 @Configuration
 @RequiredArgsConstructor
 public class KeycloakConfig {
@@ -30,16 +46,98 @@ public class KeycloakConfig {
     @Value("${keycloak.admin.realm}")
     private String adminRealm;
 
+    @Value("${keycloak.admin.http.max-connections:50}")
+    private int maxConnections;
+
+    @Value("${keycloak.admin.http.max-connections-per-route:20}")
+    private int maxConnectionsPerRoute;
+
+    @Value("${keycloak.admin.http.connect-timeout:PT2S}")
+    private Duration connectTimeout;
+
+    @Value("${keycloak.admin.http.read-timeout:PT10S}")
+    private Duration readTimeout;
+
+    @Value("${keycloak.admin.http.pool-timeout:PT5S}")
+    private Duration poolTimeout;
+
+    @Value("${keycloak.admin.http.keep-alive:PT30S}")
+    private Duration keepAlive;
+
+    @Value("${keycloak.admin.token.min-validity:PT30S}")
+    private Duration tokenMinValidity;
+
+    private final MeterRegistry meterRegistry;
+
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager keycloakConnectionManager() {
+        // Les connexions inutilisées au-delà du keep-alive sont fermées plutôt que réutilisées
+        PoolingHttpClientConnectionManager connectionManager =
+                new PoolingHttpClientConnectionManager(keepAlive.toMillis(), TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        connectionManager.setValidateAfterInactivity(1000);
+
+        registerPoolGauge(connectionManager, "leased", PoolStats::getLeased);
+        registerPoolGauge(connectionManager, "available", PoolStats::getAvailable);
+        registerPoolGauge(connectionManager, "pending", PoolStats::getPending);
+        registerPoolGauge(connectionManager, "max", PoolStats::getMax);
+        return connectionManager;
+    }
+
+    private void registerPoolGauge(PoolingHttpClientConnectionManager connectionManager, String state,
+                                   ToDoubleFunction<PoolStats> value) {
+        Gauge.builder("keycloak.admin.http.pool", connectionManager, manager -> value.applyAsDouble(manager.getTotalStats()))
+                .tag("state", state)
+                .register(meterRegistry);
+    }
+
+    @Bean(destroyMethod = "close")
+    public ResteasyClient keycloakResteasyClient(PoolingHttpClientConnectionManager keycloakConnectionManager) {
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout((int) connectTimeout.toMillis())
+                .setSocketTimeout((int) readTimeout.toMillis())
+                .setConnectionRequestTimeout((int) poolTimeout.toMillis())
+                .build();
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(keycloakConnectionManager)
+                .setConnectionManagerShared(true)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy((response, context) -> keepAlive.toMillis())
+                .evictIdleConnections(keepAlive.toMillis(), TimeUnit.MILLISECONDS)
+                .build();
+
+        ResteasyClientBuilder builder = ((ResteasyClientBuilder) ResteasyClientBuilder.newBuilder())
+                .httpEngine(new KeycloakClientMetricsEngine(httpClient, meterRegistry));
+        // Même fournisseur Jackson que le client construit par défaut par KeycloakBuilder
+        builder.register(JacksonProvider.class, 100);
+        return builder.build();
+    }
+
     @Bean
-    public Keycloak keycloak() {
-        return KeycloakBuilder.builder()
+    public Keycloak keycloak(ResteasyClient keycloakResteasyClient) {
+        Keycloak keycloak = KeycloakBuilder.builder()
                 .serverUrl(authServerUrl)
                 .realm(adminRealm)
                 .clientId(adminClientId)
                 .username(adminUsername)
                 .password(adminPassword)
                 .grantType(OAuth2Constants.PASSWORD)
+                .resteasyClient(keycloakResteasyClient)
                 .build();
+        // Le jeton est réutilisé tant qu'il reste valide au moins tokenMinValidity, puis rafraîchi
+        keycloak.tokenManager().setMinTokenValidity(tokenMinValidity.toSeconds());
+        return keycloak;
     }
-}
 
+    // Proxys sans état et thread-safe: créés une seule fois et partagés par les services
+    @Bean
+    public RealmResource realmResource(Keycloak keycloak) {
+        return keycloak.realm(realm);
+    }
+
+    @Bean
+    public UsersResource usersResource(RealmResource realmResource) {
+        return realmResource.users();
+    }
+}
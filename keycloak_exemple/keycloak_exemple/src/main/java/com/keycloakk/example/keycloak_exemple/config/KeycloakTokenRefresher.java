@@ -0,0 +1,28 @@
+package com.keycloakk.example.keycloak_exemple.config;
+
+import lombok.RequiredArgsConstructor;
+import org.keycloak.admin.client.Keycloak;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rafraîchit le jeton d'administration Keycloak avant son expiration, hors du chemin des requêtes
+ * utilisateur. Le TokenManager ne contacte Keycloak que si le jeton expire dans moins de
+ * keycloak.admin.token.min-validity; sinon l'appel est purement local.
+ */
+@Component
+@RequiredArgsConstructor
+public class KeycloakTokenRefresher {
+
+    private final Keycloak keycloak;
+
+    @Scheduled(fixedDelayString = "${keycloak.admin.token.refresh-check-interval:PT15S}",
+            initialDelayString = "${keycloak.admin.token.refresh-check-interval:PT15S}")
+    public void refreshAdminToken() {
+        try {
+            keycloak.tokenManager().getAccessToken();
+        } catch (RuntimeException e) {
+            System.out.println("Échec du rafraîchissement du jeton d'administration Keycloak: " + e.getMessage());
+        }
+    }
+}
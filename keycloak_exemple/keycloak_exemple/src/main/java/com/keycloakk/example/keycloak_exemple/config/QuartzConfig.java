@@ -0,0 +1,52 @@
+package com.keycloakk.example.keycloak_exemple.config;
+
+import com.keycloakk.example.keycloak_exemple.jobs.TransactionPartitionMaintenanceJob;
+import com.keycloakk.example.keycloak_exemple.jobs.UserSynchronizationJob;
+import org.quartz.JobBuilder;
+import org.quartz.JobDetail;
+import org.quartz.Trigger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.Date;
+
+@Configuration
+public class QuartzConfig {
+
+    @Bean
+    public JobDetail userSynchronizationJobDetail() {
+        return JobBuilder.newJob(UserSynchronizationJob.class)
+                .withIdentity(UserSynchronizationJob.JOB_KEY)
+                .storeDurably()
+                // Relancée par une autre instance si celle qui l'exécutait s'arrête en cours de route
+                .requestRecovery()
+                .build();
+    }
+
+    // Déclencheur unique pour le cluster: créé au premier démarrage avec un premier cycle immédiat, puis conservé
+    // tel quel en base (spring.quartz.overwrite-existing-jobs=false), si bien que les redémarrages et les
+    // déploiements progressifs ne relancent pas de synchronisation supplémentaire
+    @Bean
+    public Trigger userSynchronizationTrigger(@Value("${keycloak.sync.min-interval:PT30S}") Duration minInterval) {
+        return UserSynchronizationJob.buildTrigger(minInterval, new Date());
+    }
+
+    @Bean
+    public JobDetail transactionPartitionMaintenanceJobDetail() {
+        return JobBuilder.newJob(TransactionPartitionMaintenanceJob.class)
+                .withIdentity(TransactionPartitionMaintenanceJob.JOB_KEY)
+                .storeDurably()
+                .requestRecovery()
+                .build();
+    }
+
+    // Créé au premier démarrage puis conservé en base comme le précédent: un changement de
+    // transaction.partitions.maintenance-cron est appliqué au déclencheur existant par
+    // TransactionPartitionMaintenanceSchedule
+    @Bean
+    public Trigger transactionPartitionMaintenanceTrigger(@Value("${transaction.partitions.maintenance-cron:0 0 3 * * ?}") String cron) {
+        return TransactionPartitionMaintenanceJob.buildTrigger(cron);
+    }
+}
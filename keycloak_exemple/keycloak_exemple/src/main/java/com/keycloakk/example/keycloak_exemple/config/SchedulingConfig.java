@@ -1,9 +1,11 @@
 package com.keycloakk.example.keycloak_exemple.config;
 
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
 @Configuration
+@EnableAsync
 @EnableScheduling
 public class SchedulingConfig {
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.keycloakk.example.keycloak_exemple.dtos;
+
+import com.keycloakk.example.keycloak_exemple.model.KeycloakOperation;
+import com.keycloakk.example.keycloak_exemple.model.OutboxStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KeycloakOutboxEventDTO {
+
+    private long id;
+    private KeycloakOperation operation;
+    private String keycloakId;
+    private String username;
+    private OutboxStatus status;
+    private int attempts;
+    private LocalDateTime createdAt;
+    private LocalDateTime nextAttemptAt;
+    private String lastError;
+}
@@ -0,0 +1,18 @@
+package com.keycloakk.example.keycloak_exemple.dtos;
+
+import com.keycloakk.example.keycloak_exemple.model.OutboxStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KeycloakOutboxStatusDTO {
+
+    private Map<OutboxStatus, Long> counts;
+    private List<KeycloakOutboxEventDTO> operations;
+}
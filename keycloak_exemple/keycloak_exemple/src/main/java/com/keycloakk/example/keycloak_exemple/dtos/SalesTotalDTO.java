@@ -0,0 +1,18 @@
+package com.keycloakk.example.keycloak_exemple.dtos;
+
+import com.keycloakk.example.keycloak_exemple.model.TransactionStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesTotalDTO {
+
+    private TransactionStatus status;
+    private long count;
+    private BigDecimal amount;
+}
@@ -0,0 +1,20 @@
+package com.keycloakk.example.keycloak_exemple.dtos;
+
+import com.keycloakk.example.keycloak_exemple.model.TransactionStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoreDailySalesDTO {
+
+    private LocalDate day;
+    private TransactionStatus status;
+    private long count;
+    private BigDecimal amount;
+}
@@ -0,0 +1,22 @@
+package com.keycloakk.example.keycloak_exemple.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoreSalesSummaryDTO {
+
+    private Long storeId;
+    private LocalDate from;
+    private LocalDate to;
+    // Totals per status over the whole period
+    private List<SalesTotalDTO> totals;
+    // One entry per day and status having transactions, in day order
+    private List<StoreDailySalesDTO> days;
+}
@@ -0,0 +1,22 @@
+package com.keycloakk.example.keycloak_exemple.dtos;
+
+import com.keycloakk.example.keycloak_exemple.model.TransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Transaction columns plus the owning customer and merchant, read in a single query for access checks
+public record TransactionAccessView(Long id,
+                                    BigDecimal amount,
+                                    LocalDateTime transactionDate,
+                                    String description,
+                                    TransactionStatus status,
+                                    Long customerId,
+                                    Long storeId,
+                                    Long merchantId) {
+
+    public TransactionDTO toDTO() {
+        return new TransactionDTO(id, amount, transactionDate, description, status,
+                customerId == null ? null : String.valueOf(customerId), storeId);
+    }
+}
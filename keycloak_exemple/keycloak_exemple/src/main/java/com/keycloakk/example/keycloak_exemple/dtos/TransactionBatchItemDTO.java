@@ -0,0 +1,22 @@
+package com.keycloakk.example.keycloak_exemple.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionBatchItemDTO {
+
+    private BigDecimal amount;
+    private String description;
+    private Long storeId;
+    // Internal id of the customer, optional for anonymous point-of-sale transactions
+    private Long customerId;
+    // Defaults to the ingestion time when absent
+    private LocalDateTime transactionDate;
+}
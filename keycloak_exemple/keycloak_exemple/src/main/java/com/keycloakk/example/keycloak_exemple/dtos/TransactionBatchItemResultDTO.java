@@ -0,0 +1,22 @@
+package com.keycloakk.example.keycloak_exemple.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionBatchItemResultDTO {
+
+    public enum Outcome {
+        CREATED,
+        REJECTED
+    }
+
+    // Position of the item in the submitted array or NDJSON stream, starting at 0
+    private int index;
+    private Outcome outcome;
+    private Long transactionId;
+    private String error;
+}
@@ -0,0 +1,17 @@
+package com.keycloakk.example.keycloak_exemple.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionBatchResultDTO {
+
+    private int created;
+    private int rejected;
+    private List<TransactionBatchItemResultDTO> results;
+}
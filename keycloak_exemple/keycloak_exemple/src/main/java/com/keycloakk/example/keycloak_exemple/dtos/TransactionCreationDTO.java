@@ -1,6 +1,5 @@
 package com.keycloakk.example.keycloak_exemple.dtos;
 
-import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import lombok.AllArgsConstructor;
@@ -20,7 +19,7 @@ public class TransactionCreationDTO {
 
     private String description;
 
-    @NotBlank(message = "Store ID is required")
-    private String storeId;
+    @NotNull(message = "Store ID is required")
+    private Long storeId;
 }
 
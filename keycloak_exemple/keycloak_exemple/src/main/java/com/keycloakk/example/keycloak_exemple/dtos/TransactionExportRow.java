@@ -0,0 +1,16 @@
+package com.keycloakk.example.keycloak_exemple.dtos;
+
+import com.keycloakk.example.keycloak_exemple.model.TransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Exported transaction columns, read directly by a constructor expression (no managed entities)
+public record TransactionExportRow(Long id,
+                                   BigDecimal amount,
+                                   LocalDateTime transactionDate,
+                                   String description,
+                                   TransactionStatus status,
+                                   Long customerId,
+                                   Long storeId) {
+}
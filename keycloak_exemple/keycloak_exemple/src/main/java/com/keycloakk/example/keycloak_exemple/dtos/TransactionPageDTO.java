@@ -0,0 +1,17 @@
+package com.keycloakk.example.keycloak_exemple.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionPageDTO {
+
+    private List<TransactionDTO> items;
+    // Opaque token to pass as "cursor" for the next page, null on the last page
+    private String nextCursor;
+}
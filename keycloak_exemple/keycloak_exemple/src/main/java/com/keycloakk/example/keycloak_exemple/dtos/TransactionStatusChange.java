@@ -0,0 +1,33 @@
+package com.keycloakk.example.keycloak_exemple.dtos;
+
+import com.keycloakk.example.keycloak_exemple.model.TransactionStatus;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+// Row returned by the conditional status UPDATE (see TransactionRepository#updateStatus)
+public record TransactionStatusChange(Long id,
+                                      BigDecimal amount,
+                                      LocalDateTime transactionDate,
+                                      String description,
+                                      Long customerId,
+                                      Long storeId) {
+
+    // Columns in RETURNING order: id, amount, transaction_date, description, customer_id, store_id
+    public static TransactionStatusChange fromRow(Object[] row) {
+        return new TransactionStatusChange(
+                ((Number) row[0]).longValue(),
+                (BigDecimal) row[1],
+                row[2] instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) row[2],
+                (String) row[3],
+                row[4] == null ? null : ((Number) row[4]).longValue(),
+                row[5] == null ? null : ((Number) row[5]).longValue()
+        );
+    }
+
+    public TransactionDTO toDTO(TransactionStatus status) {
+        return new TransactionDTO(id, amount, transactionDate, description, status,
+                customerId == null ? null : String.valueOf(customerId), storeId);
+    }
+}
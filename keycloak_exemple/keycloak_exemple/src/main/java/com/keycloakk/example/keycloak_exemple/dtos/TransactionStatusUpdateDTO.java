@@ -0,0 +1,22 @@
+package com.keycloakk.example.keycloak_exemple.dtos;
+
+import com.keycloakk.example.keycloak_exemple.model.TransactionStatus;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionStatusUpdateDTO {
+
+    @NotEmpty(message = "Transaction IDs are required")
+    private List<Long> ids;
+
+    @NotNull(message = "Status is required")
+    private TransactionStatus status;
+}
@@ -0,0 +1,19 @@
+package com.keycloakk.example.keycloak_exemple.dtos;
+
+import com.keycloakk.example.keycloak_exemple.model.TransactionStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionStatusUpdateResultDTO {
+
+    private TransactionStatus status;
+    private int updated;
+    // Not found, not in one of your stores, or not in a status that can move to the requested one
+    private List<Long> notUpdatedIds;
+}
@@ -0,0 +1,7 @@
+package com.keycloakk.example.keycloak_exemple.dtos;
+
+import com.keycloakk.example.keycloak_exemple.model.UserRole;
+
+// Identité compacte d'un utilisateur, résolue à partir du sujet du jeton JWT
+public record UserIdentity(Long id, String keycloakId, String username, UserRole role) {
+}
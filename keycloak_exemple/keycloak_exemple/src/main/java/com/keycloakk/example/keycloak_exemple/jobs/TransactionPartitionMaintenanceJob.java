@@ -0,0 +1,45 @@
+package com.keycloakk.example.keycloak_exemple.jobs;
+
+import com.keycloakk.example.keycloak_exemple.services.TransactionPartitionService;
+import lombok.RequiredArgsConstructor;
+import org.quartz.CronScheduleBuilder;
+import org.quartz.CronTrigger;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.JobKey;
+import org.quartz.TriggerBuilder;
+import org.quartz.TriggerKey;
+import org.springframework.scheduling.quartz.QuartzJobBean;
+
+/**
+ * Maintenance quotidienne des partitions mensuelles de la table transaction, exécutée par une seule
+ * instance du cluster Quartz.
+ */
+@DisallowConcurrentExecution
+@RequiredArgsConstructor
+public class TransactionPartitionMaintenanceJob extends QuartzJobBean {
+
+    public static final JobKey JOB_KEY = JobKey.jobKey("transactionPartitionMaintenance", "transactions");
+    public static final TriggerKey TRIGGER_KEY = TriggerKey.triggerKey("transactionPartitionMaintenanceTrigger", "transactions");
+
+    private final TransactionPartitionService transactionPartitionService;
+
+    // Les déclenchements manqués (cluster arrêté à l'heure prévue) sont rattrapés une fois au redémarrage
+    public static CronTrigger buildTrigger(String cron) {
+        return TriggerBuilder.newTrigger()
+                .withIdentity(TRIGGER_KEY)
+                .forJob(JOB_KEY)
+                .withSchedule(CronScheduleBuilder.cronSchedule(cron).withMisfireHandlingInstructionFireAndProceed())
+                .build();
+    }
+
+    @Override
+    protected void executeInternal(JobExecutionContext context) throws JobExecutionException {
+        try {
+            transactionPartitionService.maintainPartitions();
+        } catch (RuntimeException e) {
+            throw new JobExecutionException("Échec de la maintenance des partitions de transactions", e);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.keycloakk.example.keycloak_exemple.jobs;
+
+import lombok.RequiredArgsConstructor;
+import org.quartz.CronTrigger;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Applique {@code transaction.partitions.maintenance-cron} au déclencheur de la maintenance des
+ * partitions. Ce déclencheur est conservé dans le job store JDBC partagé par le cluster
+ * (spring.quartz.overwrite-existing-jobs=false): sans cette vérification, l'expression du premier
+ * déploiement resterait en vigueur. Au démarrage, l'expression en base est comparée à celle configurée
+ * et le déclencheur n'est replanifié que si elles diffèrent; les instances suivantes d'un déploiement
+ * progressif trouvent l'expression à jour et ne font rien.
+ */
+@Component
+@RequiredArgsConstructor
+public class TransactionPartitionMaintenanceSchedule {
+
+    private final Scheduler scheduler;
+
+    @Value("${transaction.partitions.maintenance-cron:0 0 3 * * ?}")
+    private String cron;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() throws SchedulerException {
+        Trigger stored = scheduler.getTrigger(TransactionPartitionMaintenanceJob.TRIGGER_KEY);
+        if (stored == null) {
+            return;
+        }
+        if (stored instanceof CronTrigger cronTrigger && cron.equals(cronTrigger.getCronExpression())) {
+            return;
+        }
+        String previous = stored instanceof CronTrigger cronTrigger ? cronTrigger.getCronExpression() : stored.toString();
+        scheduler.rescheduleJob(TransactionPartitionMaintenanceJob.TRIGGER_KEY, TransactionPartitionMaintenanceJob.buildTrigger(cron));
+        System.out.println("Maintenance des partitions replanifiée: " + previous + " -> " + cron);
+    }
+}
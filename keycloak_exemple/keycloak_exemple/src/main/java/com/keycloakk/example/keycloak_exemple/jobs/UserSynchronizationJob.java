@@ -0,0 +1,94 @@
+package com.keycloakk.example.keycloak_exemple.jobs;
+
+import com.keycloakk.example.keycloak_exemple.services.KeycloakUserSyncService;
+import lombok.RequiredArgsConstructor;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.JobKey;
+import org.quartz.SchedulerException;
+import org.quartz.SimpleScheduleBuilder;
+import org.quartz.SimpleTrigger;
+import org.quartz.Trigger;
+import org.quartz.TriggerBuilder;
+import org.quartz.TriggerKey;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.quartz.QuartzJobBean;
+
+import java.time.Duration;
+import java.util.Date;
+
+/**
+ * Synchronisation des utilisateurs Keycloak exécutée par le job store JDBC clusterisé de Quartz:
+ * une seule instance l'exécute à chaque cycle et une exécution lente ne se cumule pas avec la suivante.
+ * Après chaque exécution, l'intervalle est recalculé à partir de la durée de la dernière exécution.
+ */
+@DisallowConcurrentExecution
+@RequiredArgsConstructor
+public class UserSynchronizationJob extends QuartzJobBean {
+
+    public static final JobKey JOB_KEY = JobKey.jobKey("userSynchronization", "keycloak");
+    public static final TriggerKey TRIGGER_KEY = TriggerKey.triggerKey("userSynchronizationTrigger", "keycloak");
+
+    private final KeycloakUserSyncService keycloakUserSyncService;
+    private final UserSynchronizationWarmup userSynchronizationWarmup;
+
+    @Value("${keycloak.sync.min-interval:PT30S}")
+    private Duration minInterval;
+
+    @Value("${keycloak.sync.max-interval:PT10M}")
+    private Duration maxInterval;
+
+    @Value("${keycloak.sync.interval-factor:3}")
+    private int intervalFactor;
+
+    public static Trigger buildTrigger(Duration interval, Date startAt) {
+        return TriggerBuilder.newTrigger()
+                .withIdentity(TRIGGER_KEY)
+                .forJob(JOB_KEY)
+                .startAt(startAt)
+                .withSchedule(SimpleScheduleBuilder.simpleSchedule()
+                        .withIntervalInMilliseconds(interval.toMillis())
+                        .repeatForever()
+                        // Les déclenchements manqués pendant une exécution longue ne sont pas rejoués
+                        .withMisfireHandlingInstructionNextWithRemainingCount())
+                .build();
+    }
+
+    @Override
+    protected void executeInternal(JobExecutionContext context) throws JobExecutionException {
+        long start = System.currentTimeMillis();
+        try {
+            keycloakUserSyncService.synchronizeIncrementally();
+            userSynchronizationWarmup.markSynchronized();
+        } catch (RuntimeException e) {
+            throw new JobExecutionException("Échec de la synchronisation des utilisateurs", e);
+        } finally {
+            adaptInterval(context, Duration.ofMillis(System.currentTimeMillis() - start));
+        }
+    }
+
+    // Intervalle = durée de la dernière exécution x facteur, borné par [min-interval, max-interval]
+    private void adaptInterval(JobExecutionContext context, Duration lastRunDuration) {
+        Duration interval = lastRunDuration.multipliedBy(intervalFactor);
+        if (interval.compareTo(minInterval) < 0) {
+            interval = minInterval;
+        } else if (interval.compareTo(maxInterval) > 0) {
+            interval = maxInterval;
+        }
+
+        if (context.getTrigger() instanceof SimpleTrigger current
+                && current.getRepeatInterval() == interval.toMillis()) {
+            return;
+        }
+
+        try {
+            Date nextRun = new Date(System.currentTimeMillis() + interval.toMillis());
+            context.getScheduler().rescheduleJob(TRIGGER_KEY, buildTrigger(interval, nextRun));
+            System.out.println("Prochaine synchronisation des utilisateurs dans " + interval.toSeconds() + " s"
+                    + " (dernière exécution: " + lastRunDuration.toMillis() + " ms)");
+        } catch (SchedulerException e) {
+            System.out.println("Impossible d'ajuster l'intervalle de synchronisation: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.keycloakk.example.keycloak_exemple.jobs;
+
+import com.keycloakk.example.keycloak_exemple.services.KeycloakUserSyncService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Disponibilité de l'instance vis-à-vis de la synchronisation des utilisateurs. La première
+ * synchronisation n'est pas lancée par chaque instance: c'est le déclencheur Quartz partagé par le
+ * cluster qui l'exécute, une seule fois, hors du chemin de démarrage (voir {@code QuartzConfig}).
+ * Tant qu'aucune synchronisation n'a abouti, l'indicateur de santé (inclus dans le groupe
+ * readiness) signale l'instance comme non prête; un instantané déjà persisté en base par une
+ * exécution précédente suffit à la rendre prête immédiatement. Quand la synchronisation a lieu sur une
+ * autre instance, la base est consultée au plus une fois par {@code keycloak.sync.readiness-check-interval},
+ * quel que soit le nombre de sondes.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserSynchronizationWarmup implements HealthIndicator {
+
+    private final KeycloakUserSyncService keycloakUserSyncService;
+
+    @Value("${keycloak.sync.readiness-check-interval:PT10S}")
+    private Duration readinessCheckInterval;
+
+    private volatile boolean synchronizedOnce;
+
+    // Prochaine consultation de la base autorisée: un résultat négatif est réutilisé jusque-là
+    private volatile long nextSnapshotCheck;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (snapshotCheckDue() && keycloakUserSyncService.hasSynchronizedSnapshot()) {
+            synchronizedOnce = true;
+            System.out.println("Instantané des utilisateurs déjà présent en base, instance prête");
+        } else {
+            System.out.println("En attente de la synchronisation initiale des utilisateurs par le cluster");
+        }
+    }
+
+    public void markSynchronized() {
+        synchronizedOnce = true;
+    }
+
+    @Override
+    public Health health() {
+        // La synchronisation initiale a pu être exécutée par une autre instance du cluster
+        if (!synchronizedOnce && snapshotCheckDue() && keycloakUserSyncService.hasSynchronizedSnapshot()) {
+            synchronizedOnce = true;
+        }
+        return synchronizedOnce
+                ? Health.up().build()
+                : Health.outOfService().withDetail("reason", "Synchronisation initiale des utilisateurs en cours").build();
+    }
+
+    private synchronized boolean snapshotCheckDue() {
+        long now = System.currentTimeMillis();
+        if (now < nextSnapshotCheck) {
+            return false;
+        }
+        nextSnapshotCheck = now + readinessCheckInterval.toMillis();
+        return true;
+    }
+}
@@ -0,0 +1,6 @@
+package com.keycloakk.example.keycloak_exemple.model;
+
+public enum KeycloakOperation {
+    UPDATE_USER,
+    DELETE_USER
+}
@@ -0,0 +1,66 @@
+package com.keycloakk.example.keycloak_exemple.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Opération Keycloak enregistrée dans la même transaction que la modification en base,
+ * puis appliquée de façon asynchrone par le dispatcher de l'outbox.
+ */
+@Entity
+@Table(name = "keycloak_outbox")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KeycloakOutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "keycloak_outbox_seq")
+    @SequenceGenerator(name = "keycloak_outbox_seq", sequenceName = "keycloak_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private KeycloakOperation operation;
+
+    @Column(nullable = false)
+    private String keycloakId;
+
+    private String username;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OutboxStatus status;
+
+    private int attempts;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    // Réservation par une instance du dispatcher, reprise par une autre une fois expirée
+    private LocalDateTime lockedUntil;
+
+    private LocalDateTime processedAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    // Factory method to create a new pending operation
+    public static KeycloakOutboxEvent createEvent(KeycloakOperation operation, String keycloakId, String username) {
+        LocalDateTime now = LocalDateTime.now();
+        KeycloakOutboxEvent event = new KeycloakOutboxEvent();
+        event.setOperation(operation);
+        event.setKeycloakId(keycloakId);
+        event.setUsername(username);
+        event.setStatus(OutboxStatus.PENDING);
+        event.setCreatedAt(now);
+        event.setNextAttemptAt(now);
+        return event;
+    }
+}
@@ -0,0 +1,8 @@
+package com.keycloakk.example.keycloak_exemple.model;
+
+public enum OutboxStatus {
+    PENDING,
+    PROCESSING,
+    DONE,
+    FAILED
+}
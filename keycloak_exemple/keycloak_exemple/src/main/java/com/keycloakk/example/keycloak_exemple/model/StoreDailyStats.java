@@ -0,0 +1,32 @@
+package com.keycloakk.example.keycloak_exemple.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Nombre et montant des transactions d'une boutique pour un jour et un statut. Les lignes sont écrites
+ * uniquement par des upserts incrémentaux (voir {@code StoreDailyStatsRepository#addDelta}).
+ */
+@Entity
+@Table(name = "store_daily_stats")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoreDailyStats {
+
+    @EmbeddedId
+    private StoreDailyStatsId id;
+
+    @Column(nullable = false)
+    private long txCount;
+
+    @Column(nullable = false)
+    private BigDecimal amountSum;
+}
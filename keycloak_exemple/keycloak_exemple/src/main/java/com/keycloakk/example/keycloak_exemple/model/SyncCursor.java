@@ -0,0 +1,23 @@
+package com.keycloakk.example.keycloak_exemple.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "sync_cursor")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SyncCursor {
+    @Id
+    private String name;
+
+    // Horodatage (ms) du dernier événement d'administration Keycloak appliqué
+    private Long lastEventTime;
+
+    private LocalDateTime lastFullSyncAt;
+}
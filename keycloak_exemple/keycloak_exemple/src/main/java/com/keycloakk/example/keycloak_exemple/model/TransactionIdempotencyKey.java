@@ -0,0 +1,37 @@
+package com.keycloakk.example.keycloak_exemple.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Clé d'idempotence d'une création de transaction, avec l'empreinte de la requête d'origine et la
+ * réponse (JSON) à rejouer.
+ */
+@Entity
+@Table(name = "transaction_idempotency_key")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionIdempotencyKey {
+
+    @EmbeddedId
+    private TransactionIdempotencyKeyId id;
+
+    @Column(nullable = false, length = 64)
+    private String requestFingerprint;
+
+    private Long transactionId;
+
+    @Column(columnDefinition = "text")
+    private String response;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
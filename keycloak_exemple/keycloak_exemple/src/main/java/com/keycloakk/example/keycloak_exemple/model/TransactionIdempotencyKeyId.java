@@ -0,0 +1,22 @@
+package com.keycloakk.example.keycloak_exemple.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionIdempotencyKeyId implements Serializable {
+
+    @Column(nullable = false)
+    private String customerKeycloakId;
+
+    @Column(nullable = false)
+    private String idempotencyKey;
+}
@@ -1,10 +1,21 @@
 package com.keycloakk.example.keycloak_exemple.model;
 
+import java.util.Set;
 
+// Each status lists the statuses it can be reached from: PENDING -> COMPLETED | FAILED, COMPLETED -> REFUNDED
 public enum TransactionStatus {
     PENDING,
-    COMPLETED,
-    FAILED,
-    REFUNDED
-}
+    COMPLETED(PENDING),
+    FAILED(PENDING),
+    REFUNDED(COMPLETED);
+
+    private final Set<TransactionStatus> predecessors;
 
+    TransactionStatus(TransactionStatus... predecessors) {
+        this.predecessors = Set.of(predecessors);
+    }
+
+    public Set<TransactionStatus> getPredecessors() {
+        return predecessors;
+    }
+}
@@ -14,8 +14,10 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 public class User {
+    // Séquence avec allocation groupée: indispensable au batching JDBC des insertions (IDENTITY le désactive)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "app_user_seq")
+    @SequenceGenerator(name = "app_user_seq", sequenceName = "app_user_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, unique = true)
@@ -37,6 +39,9 @@ public class User {
     @Column(nullable = false, unique = true)
     private String keycloakId; // New field to store Keycloak ID
 
+    // Empreinte (username, email, noms, rôle) du dernier état Keycloak appliqué par la synchronisation
+    private Long syncFingerprint;
+
     @OneToMany(mappedBy = "merchant", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Store> stores = new ArrayList<>();
 
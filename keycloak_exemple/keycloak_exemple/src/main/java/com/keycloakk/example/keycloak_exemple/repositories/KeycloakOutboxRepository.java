@@ -0,0 +1,43 @@
+package com.keycloakk.example.keycloak_exemple.repositories;
+
+import com.keycloakk.example.keycloak_exemple.model.KeycloakOutboxEvent;
+import com.keycloakk.example.keycloak_exemple.model.OutboxStatus;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface KeycloakOutboxRepository extends JpaRepository<KeycloakOutboxEvent, Long> {
+
+    // Opérations à traiter, verrouillées sans attendre celles déjà prises par une autre instance
+    @Query(value = "select * from keycloak_outbox"
+            + " where (status = 'PENDING' and next_attempt_at <= :now)"
+            + " or (status = 'PROCESSING' and locked_until < :now)"
+            + " order by id limit :limit for update skip locked", nativeQuery = true)
+    List<KeycloakOutboxEvent> lockNextBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    // Prolonge la réservation tant qu'elle appartient encore à cette instance (même échéance que celle posée par elle)
+    @Modifying
+    @Query("update KeycloakOutboxEvent o set o.lockedUntil = :lockedUntil where o.id in :ids"
+            + " and o.status = com.keycloakk.example.keycloak_exemple.model.OutboxStatus.PROCESSING"
+            + " and o.lockedUntil = :currentLock")
+    int renewLock(@Param("ids") Collection<Long> ids, @Param("currentLock") LocalDateTime currentLock,
+                  @Param("lockedUntil") LocalDateTime lockedUntil);
+
+    @Query("select distinct o.keycloakId from KeycloakOutboxEvent o"
+            + " where o.status in (com.keycloakk.example.keycloak_exemple.model.OutboxStatus.PENDING,"
+            + " com.keycloakk.example.keycloak_exemple.model.OutboxStatus.PROCESSING)"
+            + " and o.keycloakId in :keycloakIds")
+    List<String> findPendingKeycloakIds(@Param("keycloakIds") Collection<String> keycloakIds);
+
+    long countByStatus(OutboxStatus status);
+
+    List<KeycloakOutboxEvent> findByStatusInOrderByIdAsc(Collection<OutboxStatus> statuses, Limit limit);
+}
@@ -0,0 +1,51 @@
+package com.keycloakk.example.keycloak_exemple.repositories;
+
+import com.keycloakk.example.keycloak_exemple.dtos.StoreDailySalesDTO;
+import com.keycloakk.example.keycloak_exemple.model.StoreDailyStats;
+import com.keycloakk.example.keycloak_exemple.model.StoreDailyStatsId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface StoreDailyStatsRepository extends JpaRepository<StoreDailyStats, StoreDailyStatsId> {
+
+    // Adds (or subtracts) to one counter row, creating it on first use; the row lock is held until commit
+    @Modifying
+    @Query(value = "insert into store_daily_stats (store_id, day, status, slot, tx_count, amount_sum)"
+            + " values (:storeId, :day, :status, :slot, :count, :amount)"
+            + " on conflict (store_id, day, status, slot) do update"
+            + " set tx_count = store_daily_stats.tx_count + excluded.tx_count,"
+            + " amount_sum = store_daily_stats.amount_sum + excluded.amount_sum", nativeQuery = true)
+    void addDelta(@Param("storeId") Long storeId, @Param("day") LocalDate day, @Param("status") String status,
+                  @Param("slot") int slot, @Param("count") long count, @Param("amount") BigDecimal amount);
+
+    // Retire des agrégats les transactions des clients donnés, avant leur suppression ensembliste
+    @Modifying
+    @Query(value = "insert into store_daily_stats (store_id, day, status, slot, tx_count, amount_sum)"
+            + " select t.store_id, cast(t.transaction_date as date), t.status, 0, -count(*), -sum(t.amount)"
+            + " from transaction t join app_user u on u.id = t.customer_id"
+            + " where u.keycloak_id in (:keycloakIds) and t.store_id is not null"
+            + " group by t.store_id, cast(t.transaction_date as date), t.status"
+            + " order by 1, 2, 3"
+            + " on conflict (store_id, day, status, slot) do update"
+            + " set tx_count = store_daily_stats.tx_count + excluded.tx_count,"
+            + " amount_sum = store_daily_stats.amount_sum + excluded.amount_sum", nativeQuery = true)
+    int subtractCustomerTransactions(@Param("keycloakIds") Collection<String> keycloakIds);
+
+    // Slots are summed back together: one row per day and status whatever the number of transactions
+    @Query("select new com.keycloakk.example.keycloak_exemple.dtos.StoreDailySalesDTO("
+            + "s.id.day, s.id.status, sum(s.txCount), sum(s.amountSum))"
+            + " from StoreDailyStats s where s.id.storeId = :storeId and s.id.day between :from and :to"
+            + " group by s.id.day, s.id.status having sum(s.txCount) <> 0"
+            + " order by s.id.day, s.id.status")
+    List<StoreDailySalesDTO> findDailySales(@Param("storeId") Long storeId,
+                                            @Param("from") LocalDate from, @Param("to") LocalDate to);
+}
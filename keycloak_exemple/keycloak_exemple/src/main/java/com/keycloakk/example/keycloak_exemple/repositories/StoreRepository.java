@@ -1,18 +1,52 @@
 package com.keycloakk.example.keycloak_exemple.repositories;
 
 
+import com.keycloakk.example.keycloak_exemple.dtos.StoreDTO;
 import com.keycloakk.example.keycloak_exemple.model.Store;
 import com.keycloakk.example.keycloak_exemple.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface StoreRepository extends JpaRepository<Store, String> {
+public interface StoreRepository extends JpaRepository<Store, Long> {
 
     List<Store> findByMerchant(User merchant);
 
+    // Columns of StoreDTO, read without hydrating Store/User entities
+    String STORE_DTO = "select new com.keycloakk.example.keycloak_exemple.dtos.StoreDTO("
+            + "s.id, s.name, s.description, s.address, s.merchant.id)";
+
+    @Query(STORE_DTO + " from Store s where s.id = :id")
+    Optional<StoreDTO> findDTOById(@Param("id") Long id);
+
+    @Query(STORE_DTO + " from Store s")
+    List<StoreDTO> findAllDTOs();
+
+    @Query(STORE_DTO + " from Store s where s.merchant.id = :merchantId")
+    List<StoreDTO> findDTOsByMerchantId(@Param("merchantId") Long merchantId);
+
+    @Query(STORE_DTO + " from Store s where lower(s.name) like lower(concat('%', :name, '%'))")
+    List<StoreDTO> searchDTOsByName(@Param("name") String name);
+
+    // Owner of a store, for access checks, without loading the store
+    @Query("select s.merchant.id from Store s where s.id = :id")
+    Optional<Long> findMerchantIdById(@Param("id") Long id);
+
+    // Subset of the given stores owned by the merchant, without loading the entities
+    @Query("select s.id from Store s where s.merchant.id = :merchantId and s.id in :storeIds")
+    List<Long> findIdsByMerchantIdAndIdIn(@Param("merchantId") Long merchantId, @Param("storeIds") Collection<Long> storeIds);
+
     List<Store> findByNameContainingIgnoreCase(String name);
+
+    @Modifying
+    @Query("delete from Store s where s.merchant.id in (select u.id from User u where u.keycloakId in :keycloakIds)")
+    int deleteByMerchantKeycloakIdIn(@Param("keycloakIds") Collection<String> keycloakIds);
 }
 
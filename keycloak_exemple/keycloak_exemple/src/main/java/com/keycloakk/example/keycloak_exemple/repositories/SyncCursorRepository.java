@@ -0,0 +1,9 @@
+package com.keycloakk.example.keycloak_exemple.repositories;
+
+import com.keycloakk.example.keycloak_exemple.model.SyncCursor;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SyncCursorRepository extends JpaRepository<SyncCursor, String> {
+}
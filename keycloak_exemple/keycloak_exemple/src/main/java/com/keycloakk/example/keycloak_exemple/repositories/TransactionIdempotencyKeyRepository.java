@@ -0,0 +1,39 @@
+package com.keycloakk.example.keycloak_exemple.repositories;
+
+import com.keycloakk.example.keycloak_exemple.model.TransactionIdempotencyKey;
+import com.keycloakk.example.keycloak_exemple.model.TransactionIdempotencyKeyId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface TransactionIdempotencyKeyRepository extends JpaRepository<TransactionIdempotencyKey, TransactionIdempotencyKeyId> {
+
+    // Claims the key: 0 when it already exists and was created at or after expiredBefore. An expired key not
+    // purged yet is taken over as if it were absent. A concurrent claim of the same key waits here until the
+    // first one commits (then returns 0) or rolls back (then succeeds)
+    @Modifying
+    @Query(value = "insert into transaction_idempotency_key (customer_keycloak_id, idempotency_key, request_fingerprint, created_at)"
+            + " values (:customerKeycloakId, :idempotencyKey, :fingerprint, :createdAt)"
+            + " on conflict (customer_keycloak_id, idempotency_key) do update"
+            + " set request_fingerprint = excluded.request_fingerprint, created_at = excluded.created_at,"
+            + " transaction_id = null, response = null"
+            + " where transaction_idempotency_key.created_at < :expiredBefore", nativeQuery = true)
+    int claim(@Param("customerKeycloakId") String customerKeycloakId, @Param("idempotencyKey") String idempotencyKey,
+              @Param("fingerprint") String fingerprint, @Param("createdAt") LocalDateTime createdAt,
+              @Param("expiredBefore") LocalDateTime expiredBefore);
+
+    @Modifying
+    @Query("update TransactionIdempotencyKey k set k.transactionId = :transactionId, k.response = :response"
+            + " where k.id.customerKeycloakId = :customerKeycloakId and k.id.idempotencyKey = :idempotencyKey")
+    int complete(@Param("customerKeycloakId") String customerKeycloakId, @Param("idempotencyKey") String idempotencyKey,
+                 @Param("transactionId") Long transactionId, @Param("response") String response);
+
+    @Modifying
+    @Query("delete from TransactionIdempotencyKey k where k.createdAt < :before")
+    int deleteCreatedBefore(@Param("before") LocalDateTime before);
+}
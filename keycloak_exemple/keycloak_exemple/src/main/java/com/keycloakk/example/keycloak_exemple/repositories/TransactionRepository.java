@@ -1,18 +1,31 @@
 package com.keycloakk.example.keycloak_exemple.repositories;
 
 
+import com.keycloakk.example.keycloak_exemple.dtos.TransactionAccessView;
+import com.keycloakk.example.keycloak_exemple.dtos.TransactionDTO;
+import com.keycloakk.example.keycloak_exemple.dtos.TransactionExportRow;
 import com.keycloakk.example.keycloak_exemple.model.Store;
 import com.keycloakk.example.keycloak_exemple.model.Transaction;
 import com.keycloakk.example.keycloak_exemple.model.TransactionStatus;
 import com.keycloakk.example.keycloak_exemple.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface TransactionRepository extends JpaRepository<Transaction, String> {
+public interface TransactionRepository extends JpaRepository<Transaction, Long> {
 
     List<Transaction> findByCustomer(User customer);
 
@@ -23,5 +36,71 @@ public interface TransactionRepository extends JpaRepository<Transaction, String
     List<Transaction> findByCustomerAndTransactionDateBetween(User customer, LocalDateTime start, LocalDateTime end);
 
     List<Transaction> findByStatus(TransactionStatus status);
+
+    // Columns of TransactionDTO, read without hydrating Transaction/Store/User entities
+    String TRANSACTION_DTO = "select new com.keycloakk.example.keycloak_exemple.dtos.TransactionDTO("
+            + "t.id, t.amount, t.transactionDate, t.description, t.status, cast(t.customer.id as String), t.store.id)";
+
+    @Query("select new com.keycloakk.example.keycloak_exemple.dtos.TransactionAccessView("
+            + "t.id, t.amount, t.transactionDate, t.description, t.status, t.customer.id, s.id, s.merchant.id)"
+            + " from Transaction t join t.store s where t.id = :id")
+    Optional<TransactionAccessView> findAccessViewById(@Param("id") Long id);
+
+    // Keyset pages, newest first: rows strictly after the (transactionDate, id) position, served by the
+    // (customer_id | store_id, transaction_date, id) indexes whatever the depth. The redundant
+    // "transactionDate <= :date" bound lets Postgres skip the monthly partitions after the cursor
+    @Query(TRANSACTION_DTO + " from Transaction t where t.customer.id = :customerId and t.transactionDate <= :date"
+            + " and (t.transactionDate < :date or (t.transactionDate = :date and t.id < :id))"
+            + " order by t.transactionDate desc, t.id desc")
+    List<TransactionDTO> findPageByCustomerId(@Param("customerId") Long customerId,
+                                              @Param("date") LocalDateTime date, @Param("id") Long id, Limit limit);
+
+    @Query(TRANSACTION_DTO + " from Transaction t where t.store.id = :storeId and t.transactionDate <= :date"
+            + " and (t.transactionDate < :date or (t.transactionDate = :date and t.id < :id))"
+            + " order by t.transactionDate desc, t.id desc")
+    List<TransactionDTO> findPageByStoreId(@Param("storeId") Long storeId,
+                                           @Param("date") LocalDateTime date, @Param("id") Long id, Limit limit);
+
+    @Query(TRANSACTION_DTO + " from Transaction t where t.store.id = :storeId and t.transactionDate between :start and :end"
+            + " and t.transactionDate <= :date and (t.transactionDate < :date or (t.transactionDate = :date and t.id < :id))"
+            + " order by t.transactionDate desc, t.id desc")
+    List<TransactionDTO> findPageByStoreIdAndDateRange(@Param("storeId") Long storeId,
+                                                       @Param("start") LocalDateTime start, @Param("end") LocalDateTime end,
+                                                       @Param("date") LocalDateTime date, @Param("id") Long id, Limit limit);
+
+    // (store id, customer id) pairs, among the given ids, where the customer already bought at the store
+    @Query("select distinct t.store.id, c.id from Transaction t join t.customer c"
+            + " where t.store.id in :storeIds and c.id in :customerIds"
+            + " and c.role = com.keycloakk.example.keycloak_exemple.model.UserRole.CUSTOMER")
+    List<Object[]> findStoreCustomerPairs(@Param("storeIds") Collection<Long> storeIds,
+                                          @Param("customerIds") Collection<Long> customerIds);
+
+    // Status transition in a single statement: only rows still in the given predecessor status and belonging
+    // to one of the merchant's stores are changed, so concurrent transitions cannot overwrite each other.
+    // Rows are mapped with TransactionStatusChange#fromRow
+    @Query(value = "update transaction t set status = :to"
+            + " where t.id in (:ids) and t.status = :from"
+            + " and t.store_id in (select s.id from store s where s.merchant_id = :merchantId)"
+            + " returning t.id, t.amount, t.transaction_date, t.description, t.customer_id, t.store_id", nativeQuery = true)
+    List<Object[]> updateStatus(@Param("ids") Collection<Long> ids, @Param("from") String from, @Param("to") String to,
+                                @Param("merchantId") Long merchantId);
+
+    // Forward-only read for exports: projections only, fetched from the server-side cursor in blocks
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select new com.keycloakk.example.keycloak_exemple.dtos.TransactionExportRow("
+            + "t.id, t.amount, t.transactionDate, t.description, t.status, t.customer.id, t.store.id)"
+            + " from Transaction t where t.store.id = :storeId and t.transactionDate between :start and :end"
+            + " order by t.transactionDate, t.id")
+    Stream<TransactionExportRow> streamExportRows(@Param("storeId") Long storeId,
+                                                  @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    // Transactions des clients ou des boutiques des utilisateurs donnés (équivalent ensembliste des cascades de User)
+    @Modifying
+    @Query("delete from Transaction t where t.customer.id in (select u.id from User u where u.keycloakId in :keycloakIds)"
+            + " or t.store.id in (select s.id from Store s where s.merchant.keycloakId in :keycloakIds)")
+    int deleteByUserKeycloakIdIn(@Param("keycloakIds") Collection<String> keycloakIds);
 }
 
@@ -2,21 +2,42 @@ package com.keycloakk.example.keycloak_exemple.repositories;
 
 
 
+import com.keycloakk.example.keycloak_exemple.dtos.UserIdentity;
 import com.keycloakk.example.keycloak_exemple.model.User;
 import com.keycloakk.example.keycloak_exemple.model.UserRole;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, String> {
+public interface UserRepository extends JpaRepository<User, Long> {
 
     Optional<User> findByUsername(String username);
 
     Optional<User> findByEmail(String email);
     Optional<User> findByKeycloakId(String keycloakId);
+
+    @Query("select new com.keycloakk.example.keycloak_exemple.dtos.UserIdentity(u.id, u.keycloakId, u.username, u.role)"
+            + " from User u where u.keycloakId = :keycloakId")
+    Optional<UserIdentity> findIdentityByKeycloakId(@Param("keycloakId") String keycloakId);
+
+    List<User> findByKeycloakIdIn(Collection<String> keycloakIds);
+
+    // Parcours par clé (keyset) des identifiants Keycloak, sans charger les entités
+    @Query("select u.keycloakId from User u where u.keycloakId > :after order by u.keycloakId")
+    List<String> findKeycloakIdsAfter(@Param("after") String after, Limit limit);
+
+    @Modifying
+    @Query("delete from User u where u.keycloakId in :keycloakIds")
+    int deleteByKeycloakIdIn(@Param("keycloakIds") Collection<String> keycloakIds);
+
     List<User> findByRole(UserRole role);
 
     boolean existsByUsername(String username);
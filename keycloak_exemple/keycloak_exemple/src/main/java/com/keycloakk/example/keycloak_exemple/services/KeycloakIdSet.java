@@ -0,0 +1,112 @@
+package com.keycloakk.example.keycloak_exemple.services;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Ensemble compact d'identifiants Keycloak utilisé pour détecter les suppressions pendant la
+ * synchronisation. Les identifiants au format UUID (cas normal) sont stockés sous forme de deux
+ * {@code long} dans une table à adressage ouvert: 17 octets par case (deux {@code long} et un
+ * {@code boolean}), avec un taux de remplissage maintenu entre 25 et 50 % (la table double quand elle
+ * atteint {@code MAX_LOAD}), soit 34 à 68 octets par utilisateur au lieu de ~150 pour une
+ * {@code String} dans un {@code HashSet}. Les autres identifiants (utilisateurs fédérés, par exemple)
+ * sont conservés tels quels.
+ */
+public class KeycloakIdSet {
+
+    private static final float MAX_LOAD = 0.5f;
+
+    private long[] mostSignificant;
+    private long[] leastSignificant;
+    private boolean[] used;
+    private int size;
+    private final Set<String> otherIds = new HashSet<>();
+
+    public KeycloakIdSet() {
+        allocate(1024);
+    }
+
+    public void add(String keycloakId) {
+        UUID uuid = parse(keycloakId);
+        if (uuid == null) {
+            otherIds.add(keycloakId);
+            return;
+        }
+        if (size + 1 > mostSignificant.length * MAX_LOAD) {
+            grow();
+        }
+        if (insert(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits())) {
+            size++;
+        }
+    }
+
+    public boolean contains(String keycloakId) {
+        UUID uuid = parse(keycloakId);
+        if (uuid == null) {
+            return otherIds.contains(keycloakId);
+        }
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        int mask = mostSignificant.length - 1;
+        for (int slot = slot(msb, lsb, mask); used[slot]; slot = (slot + 1) & mask) {
+            if (mostSignificant[slot] == msb && leastSignificant[slot] == lsb) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return size + otherIds.size();
+    }
+
+    private boolean insert(long msb, long lsb) {
+        int mask = mostSignificant.length - 1;
+        int slot = slot(msb, lsb, mask);
+        while (used[slot]) {
+            if (mostSignificant[slot] == msb && leastSignificant[slot] == lsb) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        used[slot] = true;
+        mostSignificant[slot] = msb;
+        leastSignificant[slot] = lsb;
+        return true;
+    }
+
+    private void grow() {
+        long[] oldMsb = mostSignificant;
+        long[] oldLsb = leastSignificant;
+        boolean[] oldUsed = used;
+        allocate(oldMsb.length * 2);
+        for (int i = 0; i < oldMsb.length; i++) {
+            if (oldUsed[i]) {
+                insert(oldMsb[i], oldLsb[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        mostSignificant = new long[capacity];
+        leastSignificant = new long[capacity];
+        used = new boolean[capacity];
+    }
+
+    private static int slot(long msb, long lsb, int mask) {
+        long hash = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static UUID parse(String keycloakId) {
+        if (keycloakId == null || keycloakId.length() != 36) {
+            return null;
+        }
+        try {
+            return UUID.fromString(keycloakId);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.keycloakk.example.keycloak_exemple.services;
+
+import com.keycloakk.example.keycloak_exemple.dtos.KeycloakOutboxEventDTO;
+import com.keycloakk.example.keycloak_exemple.dtos.KeycloakOutboxStatusDTO;
+import com.keycloakk.example.keycloak_exemple.model.KeycloakOperation;
+import com.keycloakk.example.keycloak_exemple.model.KeycloakOutboxEvent;
+import com.keycloakk.example.keycloak_exemple.model.OutboxStatus;
+import com.keycloakk.example.keycloak_exemple.model.User;
+import com.keycloakk.example.keycloak_exemple.repositories.KeycloakOutboxRepository;
+import com.keycloakk.example.keycloak_exemple.repositories.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Outbox des opérations Keycloak: les services enregistrent l'opération dans leur propre transaction,
+ * et le dispatcher l'applique ensuite hors transaction, par lots et avec reprise sur erreur. Aucune
+ * connexion à la base n'est donc retenue pendant les appels HTTP vers Keycloak.
+ */
+@Service
+@RequiredArgsConstructor
+public class KeycloakOutboxService {
+
+    private static final List<OutboxStatus> OPEN_STATUSES = List.of(OutboxStatus.PENDING, OutboxStatus.PROCESSING, OutboxStatus.FAILED);
+
+    private final KeycloakOutboxRepository outboxRepository;
+    private final UserRepository userRepository;
+    private final KeycloakService keycloakService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${keycloak.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${keycloak.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${keycloak.outbox.retry-delay:PT5S}")
+    private Duration retryDelay;
+
+    // Durée de réservation des opérations d'un utilisateur, prolongée avant chaque utilisateur du lot:
+    // doit couvrir les quelques appels Keycloak d'une seule application (lecture, mise à jour, rôles)
+    @Value("${keycloak.outbox.lock-timeout:PT2M}")
+    private Duration lockTimeout;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueUpdate(User user) {
+        outboxRepository.save(KeycloakOutboxEvent.createEvent(KeycloakOperation.UPDATE_USER, user.getKeycloakId(), user.getUsername()));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueDelete(User user) {
+        outboxRepository.save(KeycloakOutboxEvent.createEvent(KeycloakOperation.DELETE_USER, user.getKeycloakId(), user.getUsername()));
+    }
+
+    // Utilisateurs dont une modification locale n'a pas encore été appliquée dans Keycloak
+    public List<String> findPendingKeycloakIds(Collection<String> keycloakIds) {
+        if (keycloakIds.isEmpty()) {
+            return List.of();
+        }
+        return outboxRepository.findPendingKeycloakIds(keycloakIds);
+    }
+
+    @Scheduled(fixedDelayString = "${keycloak.outbox.poll-interval:1000}")
+    public void dispatchPendingOperations() {
+        List<KeycloakOutboxEvent> batch = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime lockedUntil = leaseFrom(now);
+            List<KeycloakOutboxEvent> events = outboxRepository.lockNextBatch(now, batchSize);
+            events.forEach(event -> {
+                event.setStatus(OutboxStatus.PROCESSING);
+                event.setLockedUntil(lockedUntil);
+            });
+            return events;
+        });
+        if (batch == null || batch.isEmpty()) {
+            return;
+        }
+
+        // Regroupement par utilisateur: une suppression l'emporte, plusieurs mises à jour n'en font qu'une
+        Map<String, List<KeycloakOutboxEvent>> eventsByUser = batch.stream()
+                .collect(Collectors.groupingBy(KeycloakOutboxEvent::getKeycloakId, LinkedHashMap::new, Collectors.toList()));
+
+        eventsByUser.forEach((keycloakId, events) -> {
+            // Les appels des utilisateurs précédents ont pu consommer la réservation initiale: elle est prolongée,
+            // et si une autre instance a repris ces opérations entre-temps, elles lui sont laissées
+            if (!renewLock(events)) {
+                System.out.println("Opérations Keycloak pour " + keycloakId + " reprises par une autre instance, ignorées");
+                return;
+            }
+            String error = null;
+            try {
+                apply(keycloakId, events);
+            } catch (RuntimeException e) {
+                System.out.println("Échec de l'opération Keycloak pour " + keycloakId + ": " + e.getMessage());
+                error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            }
+            complete(events, error);
+        });
+    }
+
+    private boolean renewLock(List<KeycloakOutboxEvent> events) {
+        LocalDateTime currentLock = events.get(0).getLockedUntil();
+        LocalDateTime lockedUntil = leaseFrom(LocalDateTime.now());
+        List<Long> ids = events.stream().map(KeycloakOutboxEvent::getId).toList();
+        Integer renewed = transactionTemplate.execute(status -> outboxRepository.renewLock(ids, currentLock, lockedUntil));
+        if (renewed == null || renewed != ids.size()) {
+            return false;
+        }
+        events.forEach(event -> event.setLockedUntil(lockedUntil));
+        return true;
+    }
+
+    // Échéance tronquée à la milliseconde pour être relue à l'identique depuis la base
+    private LocalDateTime leaseFrom(LocalDateTime now) {
+        return now.plus(lockTimeout).truncatedTo(ChronoUnit.MILLIS);
+    }
+
+    private void apply(String keycloakId, List<KeycloakOutboxEvent> events) {
+        boolean deleted = events.stream().anyMatch(event -> event.getOperation() == KeycloakOperation.DELETE_USER);
+        if (deleted) {
+            keycloakService.deleteKeycloakUser(keycloakId);
+            return;
+        }
+        // L'état courant de la base est appliqué, ce qui couvre toutes les mises à jour regroupées
+        userRepository.findByKeycloakId(keycloakId).ifPresent(keycloakService::updateKeycloakUser);
+    }
+
+    private void complete(List<KeycloakOutboxEvent> events, String error) {
+        transactionTemplate.executeWithoutResult(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            for (KeycloakOutboxEvent event : events) {
+                event.setLockedUntil(null);
+                if (error == null) {
+                    event.setStatus(OutboxStatus.DONE);
+                    event.setProcessedAt(now);
+                    continue;
+                }
+                event.setAttempts(event.getAttempts() + 1);
+                event.setLastError(error.length() > 1000 ? error.substring(0, 1000) : error);
+                if (event.getAttempts() >= maxAttempts) {
+                    event.setStatus(OutboxStatus.FAILED);
+                } else {
+                    // Backoff exponentiel, plafonné à 64 fois le délai de base
+                    long factor = 1L << Math.min(event.getAttempts() - 1, 6);
+                    event.setStatus(OutboxStatus.PENDING);
+                    event.setNextAttemptAt(now.plus(retryDelay.multipliedBy(factor)));
+                }
+            }
+            outboxRepository.saveAll(events);
+        });
+    }
+
+    @Transactional(readOnly = true)
+    public KeycloakOutboxStatusDTO getStatus() {
+        Map<OutboxStatus, Long> counts = new EnumMap<>(OutboxStatus.class);
+        for (OutboxStatus status : OutboxStatus.values()) {
+            counts.put(status, outboxRepository.countByStatus(status));
+        }
+        List<KeycloakOutboxEventDTO> operations = outboxRepository.findByStatusInOrderByIdAsc(OPEN_STATUSES, Limit.of(batchSize)).stream()
+                .map(this::mapToDTO)
+                .collect(Collectors.toList());
+        return new KeycloakOutboxStatusDTO(counts, operations);
+    }
+
+    private KeycloakOutboxEventDTO mapToDTO(KeycloakOutboxEvent event) {
+        return new KeycloakOutboxEventDTO(
+                event.getId(),
+                event.getOperation(),
+                event.getKeycloakId(),
+                event.getUsername(),
+                event.getStatus(),
+                event.getAttempts(),
+                event.getCreatedAt(),
+                event.getNextAttemptAt(),
+                event.getLastError()
+        );
+    }
+}
@@ -2,41 +2,53 @@ package com.keycloakk.example.keycloak_exemple.services;
 
 import com.keycloakk.example.keycloak_exemple.model.User;
 import com.keycloakk.example.keycloak_exemple.model.UserRole;
-import com.keycloakk.example.keycloak_exemple.repositories.UserRepository;
-import jakarta.annotation.PostConstruct;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
-import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.resource.GroupResource;
 import org.keycloak.admin.client.resource.RealmResource;
+import org.keycloak.admin.client.resource.RoleResource;
+import org.keycloak.admin.client.resource.RoleScopeResource;
 import org.keycloak.admin.client.resource.UserResource;
 import org.keycloak.admin.client.resource.UsersResource;
 import org.keycloak.representations.idm.CredentialRepresentation;
+import org.keycloak.representations.idm.GroupRepresentation;
 import org.keycloak.representations.idm.RoleRepresentation;
 import org.keycloak.representations.idm.UserRepresentation;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import jakarta.ws.rs.NotFoundException;
 import jakarta.ws.rs.core.Response;
 
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class KeycloakService {
 
-    private final Keycloak keycloak;
-    private final UserRepository userRepository;
+    // Rôles de realm gérés par l'application; les autres rôles de l'utilisateur ne sont jamais retirés
+    private static final Set<String> MANAGED_ROLES = Set.of("ADMIN", "MERCHANT", "CUSTOMER");
 
-    @Value("${keycloak.realm}")
-    private String realm;
+    // Issue des appels dans la métrique keycloak.admin.calls
+    private static final String OUTCOME_SUCCESS = "success";
+    private static final String OUTCOME_NOT_FOUND = "not-found";
+    private static final String OUTCOME_ERROR = "error";
 
-    @PostConstruct
-    public void synchronizeUsersOnStartup() {
-        System.out.println("Synchronisation des utilisateurs au démarrage...");
-        synchronizeKeycloakUsers();
-    }
+    private final RealmResource realmResource;
+    private final UsersResource usersResource;
+    private final RealmRoleCache realmRoleCache;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${keycloak.sync.role-member-page-size:1000}")
+    private int roleMemberPageSize;
 
     public String createKeycloakUser(User user, String password) {
         if (user.getUsername() == null || user.getFirstName() == null ||
@@ -54,10 +66,23 @@ public class KeycloakService {
         userRepresentation.setEnabled(true);
         userRepresentation.setEmailVerified(true);
 
-        RealmResource realmResource = keycloak.realm(realm);
-        UsersResource usersResource = realmResource.users();
+        // Mot de passe transmis dans la requête de création: un seul appel au lieu de create + reset-password
+        CredentialRepresentation credentialRepresentation = new CredentialRepresentation();
+        credentialRepresentation.setType(CredentialRepresentation.PASSWORD);
+        credentialRepresentation.setValue(password);
+        credentialRepresentation.setTemporary(false);
+        userRepresentation.setCredentials(Collections.singletonList(credentialRepresentation));
 
-        Response response = usersResource.create(userRepresentation);
+        Response response;
+        String outcome = OUTCOME_ERROR;
+        try {
+            response = usersResource.create(userRepresentation);
+            if (response.getStatus() == 201) {
+                outcome = OUTCOME_SUCCESS;
+            }
+        } finally {
+            recordCalls("create-user", outcome, 1);
+        }
 
         System.out.println("Réponse de création Keycloak: " + response.getStatus());
         if (response.getStatus() != 201) {
@@ -66,105 +91,100 @@ public class KeycloakService {
         }
 
         String userId = extractCreatedId(response);
-
-        if (userId != null) {
-            CredentialRepresentation credentialRepresentation = new CredentialRepresentation();
-            credentialRepresentation.setType(CredentialRepresentation.PASSWORD);
-            credentialRepresentation.setValue(password);
-            credentialRepresentation.setTemporary(false);
-
-            UserResource userResource = usersResource.get(userId);
-            userResource.resetPassword(credentialRepresentation);
-
-            String roleName = mapRoleToKeycloak(user.getRole());
-            System.out.println("Attribution du rôle " + roleName + " à l'utilisateur " + user.getUsername());
-
-            try {
-                RoleRepresentation roleRepresentation = realmResource.roles().get(roleName).toRepresentation();
-                userResource.roles().realmLevel().add(Collections.singletonList(roleRepresentation));
-
-                // Vérification que le rôle a bien été attribué
-                List<RoleRepresentation> assignedRoles = userResource.roles().realmLevel().listEffective();
-                boolean roleFound = assignedRoles.stream()
-                        .anyMatch(role -> role.getName().equalsIgnoreCase(roleName));
-
-                if (!roleFound) {
-                    System.out.println("AVERTISSEMENT: Le rôle " + roleName + " n'a pas été correctement attribué à " + user.getUsername());
-                } else {
-                    System.out.println("Rôle " + roleName + " correctement attribué à " + user.getUsername());
-                }
-            } catch (Exception e) {
-                System.out.println("Erreur lors de l'attribution du rôle: " + e.getMessage());
-                e.printStackTrace();
-            }
-        }
-
+        System.out.println("Utilisateur Keycloak créé: " + user.getUsername() + " (rôle " + mapRoleToKeycloak(user.getRole())
+                + " attribué via l'outbox)");
         return userId;
     }
 
+    /**
+     * Aligne l'utilisateur Keycloak sur l'état de la base. Seuls les appels nécessaires sont émis:
+     * lecture de l'utilisateur et de ses rôles, puis mise à jour des champs et ajout / retrait de rôle
+     * uniquement en cas de différence. Les rôles non gérés par l'application (rôles par défaut, ...) sont conservés.
+     */
     public void updateKeycloakUser(User user) {
         System.out.println("Mise à jour de l'utilisateur Keycloak: " + user.getUsername());
-        RealmResource realmResource = keycloak.realm(realm);
-        UsersResource usersResource = realmResource.users();
-
-        List<UserRepresentation> userRepresentations = usersResource.search(user.getUsername());
-        if (!userRepresentations.isEmpty()) {
-            UserRepresentation userRepresentation = userRepresentations.get(0);
-            userRepresentation.setFirstName(user.getFirstName());
-            userRepresentation.setLastName(user.getLastName());
-            userRepresentation.setEmail(user.getEmail());
+        UserResource userResource = usersResource.get(user.getKeycloakId());
+        int calls = 0;
+        String outcome = OUTCOME_ERROR;
+        try {
+            UserRepresentation userRepresentation;
+            try {
+                calls++;
+                userRepresentation = userResource.toRepresentation();
+            } catch (NotFoundException e) {
+                System.out.println("Utilisateur " + user.getUsername() + " non trouvé dans Keycloak");
+                outcome = OUTCOME_NOT_FOUND;
+                return;
+            }
 
-            UserResource userResource = usersResource.get(userRepresentation.getId());
-            userResource.update(userRepresentation);
+            if (!Objects.equals(userRepresentation.getFirstName(), user.getFirstName())
+                    || !Objects.equals(userRepresentation.getLastName(), user.getLastName())
+                    || !Objects.equals(userRepresentation.getEmail(), user.getEmail())) {
+                userRepresentation.setFirstName(user.getFirstName());
+                userRepresentation.setLastName(user.getLastName());
+                userRepresentation.setEmail(user.getEmail());
+                calls++;
+                userResource.update(userRepresentation);
+            }
 
             String roleName = mapRoleToKeycloak(user.getRole());
-            System.out.println("Mise à jour du rôle de " + user.getUsername() + " vers " + roleName);
-
-            try {
-                // Supprimer tous les rôles actuels
-                List<RoleRepresentation> currentRoles = userResource.roles().realmLevel().listAll();
-                if (!currentRoles.isEmpty()) {
-                    userResource.roles().realmLevel().remove(currentRoles);
-                }
-
-                // Ajouter le nouveau rôle
-                RoleRepresentation roleRepresentation = realmResource.roles().get(roleName).toRepresentation();
-                userResource.roles().realmLevel().add(Collections.singletonList(roleRepresentation));
-
-                // Vérification
-                List<RoleRepresentation> assignedRoles = userResource.roles().realmLevel().listEffective();
-                boolean roleFound = assignedRoles.stream()
-                        .anyMatch(role -> role.getName().equalsIgnoreCase(roleName));
-
-                if (!roleFound) {
-                    System.out.println("AVERTISSEMENT: Le rôle " + roleName + " n'a pas été correctement mis à jour pour " + user.getUsername());
-                } else {
-                    System.out.println("Rôle " + roleName + " correctement mis à jour pour " + user.getUsername());
-                }
-            } catch (Exception e) {
-                System.out.println("Erreur lors de la mise à jour du rôle: " + e.getMessage());
-                e.printStackTrace();
+            RoleScopeResource realmRoles = userResource.roles().realmLevel();
+            calls++;
+            List<RoleRepresentation> currentRoles = realmRoles.listAll();
+
+            List<RoleRepresentation> rolesToRemove = currentRoles.stream()
+                    .filter(role -> MANAGED_ROLES.contains(role.getName().toUpperCase()) && !role.getName().equalsIgnoreCase(roleName))
+                    .collect(Collectors.toList());
+            boolean hasRole = currentRoles.stream().anyMatch(role -> role.getName().equalsIgnoreCase(roleName));
+
+            if (!rolesToRemove.isEmpty()) {
+                calls++;
+                realmRoles.remove(rolesToRemove);
+            }
+            if (!hasRole) {
+                calls++;
+                realmRoles.add(Collections.singletonList(realmRoleCache.get(user.getRole())));
             }
-        } else {
-            System.out.println("Utilisateur " + user.getUsername() + " non trouvé dans Keycloak");
+            if (!rolesToRemove.isEmpty() || !hasRole) {
+                System.out.println("Rôle de " + user.getUsername() + " mis à jour vers " + roleName);
+            }
+            outcome = OUTCOME_SUCCESS;
+        } finally {
+            recordCalls("update-user", outcome, calls);
         }
     }
 
-    public void deleteKeycloakUser(String username) {
-        System.out.println("Suppression de l'utilisateur Keycloak: " + username);
-        RealmResource realmResource = keycloak.realm(realm);
-        UsersResource usersResource = realmResource.users();
-
-        List<UserRepresentation> userRepresentations = usersResource.search(username);
-        if (!userRepresentations.isEmpty()) {
-            UserRepresentation userRepresentation = userRepresentations.get(0);
-            usersResource.delete(userRepresentation.getId());
-            System.out.println("Utilisateur " + username + " supprimé de Keycloak");
-        } else {
-            System.out.println("Utilisateur " + username + " non trouvé dans Keycloak pour suppression");
+    public void deleteKeycloakUser(String keycloakId) {
+        System.out.println("Suppression de l'utilisateur Keycloak: " + keycloakId);
+
+        // Appel compté une fois la réponse (ou l'échec) connue, avec son issue
+        String outcome = OUTCOME_ERROR;
+        try (Response response = usersResource.delete(keycloakId)) {
+            if (response.getStatus() == 404) {
+                outcome = OUTCOME_NOT_FOUND;
+                System.out.println("Utilisateur " + keycloakId + " non trouvé dans Keycloak pour suppression");
+            } else if (response.getStatus() >= 300) {
+                throw new IllegalStateException("Échec de la suppression de l'utilisateur " + keycloakId
+                        + " dans Keycloak: HTTP " + response.getStatus());
+            } else {
+                outcome = OUTCOME_SUCCESS;
+                System.out.println("Utilisateur " + keycloakId + " supprimé de Keycloak");
+            }
+        } finally {
+            recordCalls("delete-user", outcome, 1);
         }
     }
 
+    // Nombre d'appels HTTP à l'API d'administration par opération et par issue (keycloak.admin.calls{operation=...,outcome=...})
+    private void recordCalls(String operation, String outcome, int calls) {
+        DistributionSummary.builder("keycloak.admin.calls")
+                .description("Appels à l'API d'administration Keycloak par opération")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(calls);
+    }
+
     private String extractCreatedId(Response response) {
         if (response.getStatus() == 201) {
             String location = response.getHeaderString("Location");
@@ -183,251 +203,108 @@ public class KeycloakService {
         };
     }
 
-    @Scheduled(fixedRate = 30000) // Synchronise toutes les 30 secondes
-    public void scheduledSynchronization() {
-        System.out.println("Exécution de la synchronisation planifiée des utilisateurs...");
-        synchronizeKeycloakUsers();
-    }
-
-    public void synchronizeKeycloakUsers() {
-        System.out.println("=== DÉBUT DE SYNCHRONISATION DES UTILISATEURS ===");
-        RealmResource realmResource = keycloak.realm(realm);
-        UsersResource usersResource = realmResource.users();
-
-        // Récupérer tous les utilisateurs Keycloak
-        List<UserRepresentation> keycloakUsers = usersResource.list();
-        System.out.println("Nombre d'utilisateurs Keycloak trouvés: " + keycloakUsers.size());
-
-        // Récupérer tous les IDs Keycloak de la base de données
-        List<String> existingIds = userRepository.findAll().stream()
-                .map(User::getKeycloakId)
-                .collect(Collectors.toList());
-
-        // Synchronisation
-        for (UserRepresentation kcUser : keycloakUsers) {
-            System.out.println("\nTraitement de l'utilisateur: " + kcUser.getUsername() + " (ID: " + kcUser.getId() + ")");
-            processKeycloakUser(kcUser);
+    /**
+     * Construit l'index des rôles à partir des membres des rôles ADMIN / REALM-ADMIN / MERCHANT, en quelques
+     * appels paginés au lieu de 2 à 4 appels par utilisateur. Comme les rôles effectifs lus par
+     * {@link #determineRoleFromKeycloak(String)}, l'index couvre les rôles attribués directement, via un groupe
+     * (sous-groupes compris) et via un rôle de realm composite qui les contient.
+     */
+    public RoleMembershipIndex loadRoleMembershipIndex() {
+        Map<String, Set<String>> compositesByRole = loadRealmRoleComposites();
+        Set<String> adminIds = new HashSet<>();
+        for (String roleName : RoleMembershipIndex.grantingRoles(compositesByRole, Set.of("ADMIN", "REALM-ADMIN"))) {
+            loadRoleMembers(roleName, adminIds);
         }
-
-        // Supprimer les utilisateurs supprimés dans Keycloak
-        List<String> keycloakIds = keycloakUsers.stream()
-                .map(UserRepresentation::getId)
-                .collect(Collectors.toList());
-
-        existingIds.removeAll(keycloakIds);
-        if (!existingIds.isEmpty()) {
-            System.out.println("Suppression des utilisateurs qui n'existent plus dans Keycloak: " + existingIds.size());
-            existingIds.forEach(this::deleteByKeycloakId);
+        Set<String> merchantIds = new HashSet<>();
+        for (String roleName : RoleMembershipIndex.grantingRoles(compositesByRole, Set.of("MERCHANT"))) {
+            loadRoleMembers(roleName, merchantIds);
         }
-
-        System.out.println("=== FIN DE SYNCHRONISATION DES UTILISATEURS ===");
-    }
-
-    private void processKeycloakUser(UserRepresentation kcUser) {
-        userRepository.findByKeycloakId(kcUser.getId()).ifPresentOrElse(
-                existingUser -> {
-                    System.out.println("Utilisateur existant trouvé: " + existingUser.getUsername() + " avec rôle: " + existingUser.getRole());
-                    updateExistingUser(existingUser, kcUser);
-                },
-                () -> {
-                    System.out.println("Création d'un nouvel utilisateur: " + kcUser.getUsername());
-                    createNewUser(kcUser);
-                }
-        );
+        return new RoleMembershipIndex(adminIds, merchantIds);
     }
 
-    private void createNewUser(UserRepresentation kcUser) {
-        // Attendre un peu pour s'assurer que les rôles sont complètement assignés
-        try {
-            Thread.sleep(500);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+    // Composites de realm directs de chaque rôle de realm composite
+    private Map<String, Set<String>> loadRealmRoleComposites() {
+        Map<String, Set<String>> compositesByRole = new HashMap<>();
+        for (RoleRepresentation role : realmResource.roles().list()) {
+            if (role.isComposite()) {
+                compositesByRole.put(role.getName(), realmResource.roles().get(role.getName()).getRealmRoleComposites()
+                        .stream()
+                        .map(RoleRepresentation::getName)
+                        .collect(Collectors.toSet()));
+            }
         }
-
-        UserRole role = determineRoleWithRetry(kcUser.getId());
-        System.out.println("Rôle déterminé pour " + kcUser.getUsername() + ": " + role);
-
-        User user = new User();
-        user.setKeycloakId(kcUser.getId());
-        user.setUsername(kcUser.getUsername());
-        user.setEmail(kcUser.getEmail());
-        user.setFirstName(kcUser.getFirstName());
-        user.setLastName(kcUser.getLastName());
-        user.setRole(role);
-
-        User savedUser = userRepository.save(user);
-        System.out.println("Utilisateur sauvegardé dans la base de données: " + savedUser.getUsername() + " avec rôle: " + savedUser.getRole());
+        return compositesByRole;
     }
 
-    private void updateExistingUser(User existingUser, UserRepresentation kcUser) {
-        boolean needsUpdate = false;
-
-        if (!existingUser.getEmail().equals(kcUser.getEmail())) {
-            existingUser.setEmail(kcUser.getEmail());
-            needsUpdate = true;
-        }
-
-        if (!existingUser.getUsername().equals(kcUser.getUsername())) {
-            existingUser.setUsername(kcUser.getUsername());
-            needsUpdate = true;
-        }
-
-        if (!existingUser.getFirstName().equals(kcUser.getFirstName())) {
-            existingUser.setFirstName(kcUser.getFirstName());
-            needsUpdate = true;
-        }
-
-        if (!existingUser.getLastName().equals(kcUser.getLastName())) {
-            existingUser.setLastName(kcUser.getLastName());
-            needsUpdate = true;
-        }
-
-        // Vérifier si le rôle a changé
-        UserRole newRole = determineRoleWithRetry(kcUser.getId());
-        if (existingUser.getRole() != newRole) {
-            System.out.println("Mise à jour du rôle pour " + existingUser.getUsername() + ": " + existingUser.getRole() + " -> " + newRole);
-            existingUser.setRole(newRole);
-            needsUpdate = true;
-        }
-
-        if (needsUpdate) {
-            userRepository.save(existingUser);
-            System.out.println("Utilisateur mis à jour dans la base de données: " + existingUser.getUsername());
-        } else {
-            System.out.println("Aucune mise à jour nécessaire pour: " + existingUser.getUsername());
+    private void loadRoleMembers(String roleName, Set<String> memberIds) {
+        try {
+            RoleResource role = realmResource.roles().get(roleName);
+            int first = 0;
+            List<UserRepresentation> members;
+            do {
+                members = role.getUserMembers(first, roleMemberPageSize);
+                members.forEach(member -> memberIds.add(member.getId()));
+                first += roleMemberPageSize;
+            } while (members.size() == roleMemberPageSize);
+
+            Set<String> visitedGroups = new HashSet<>();
+            first = 0;
+            Set<GroupRepresentation> groups;
+            do {
+                groups = role.getRoleGroupMembers(first, roleMemberPageSize);
+                groups.forEach(group -> loadGroupMembers(group.getId(), memberIds, visitedGroups));
+                first += roleMemberPageSize;
+            } while (groups.size() == roleMemberPageSize);
+        } catch (NotFoundException e) {
+            System.out.println("Rôle " + roleName + " absent du realm, ignoré pour l'index des rôles");
         }
     }
 
-    private void deleteByKeycloakId(String keycloakId) {
-        userRepository.findByKeycloakId(keycloakId).ifPresent(user -> {
-            userRepository.delete(user);
-            System.out.println("Utilisateur supprimé de la base de données: " + user.getUsername());
-        });
-    }
-
-    // Méthode améliorée pour déterminer le rôle avec plusieurs tentatives
-    private UserRole determineRoleWithRetry(String keycloakId) {
-        // Première tentative
-        UserRole role = attemptRoleDetermination(keycloakId);
-
-        // Si le rôle est CUSTOMER, faire une seconde tentative après un délai
-        if (role == UserRole.CUSTOMER) {
-            System.out.println("Premier essai a retourné CUSTOMER, nouvelle tentative après délai...");
-            try {
-                Thread.sleep(1000);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-
-            // Deuxième tentative
-            role = attemptRoleDetermination(keycloakId);
-
-            // Si toujours CUSTOMER, faire une dernière tentative avec une approche différente
-            if (role == UserRole.CUSTOMER) {
-                System.out.println("Deuxième essai a retourné CUSTOMER, dernière tentative avec approche alternative...");
-                role = attemptAlternativeRoleDetermination(keycloakId);
-            }
+    // Membres d'un groupe et de ses sous-groupes, qui héritent des rôles du groupe parent
+    private void loadGroupMembers(String groupId, Set<String> memberIds, Set<String> visitedGroups) {
+        if (!visitedGroups.add(groupId)) {
+            return;
         }
-
-        return role;
+        GroupResource group = realmResource.groups().group(groupId);
+        int first = 0;
+        List<UserRepresentation> members;
+        do {
+            members = group.members(first, roleMemberPageSize, true);
+            members.forEach(member -> memberIds.add(member.getId()));
+            first += roleMemberPageSize;
+        } while (members.size() == roleMemberPageSize);
+
+        first = 0;
+        List<GroupRepresentation> subGroups;
+        do {
+            subGroups = group.getSubGroups(first, roleMemberPageSize, true);
+            subGroups.forEach(subGroup -> loadGroupMembers(subGroup.getId(), memberIds, visitedGroups));
+            first += roleMemberPageSize;
+        } while (subGroups.size() == roleMemberPageSize);
     }
 
-    private UserRole attemptRoleDetermination(String keycloakId) {
+    /**
+     * Rôle d'un utilisateur d'après ses rôles de realm effectifs (composites inclus), en un seul appel
+     * et sans attente. Même priorité que l'index des rôles: ADMIN, puis MERCHANT, sinon CUSTOMER.
+     */
+    public UserRole determineRoleFromKeycloak(String keycloakId) {
+        List<RoleRepresentation> effectiveRoles;
+        String outcome = OUTCOME_ERROR;
         try {
-            RealmResource realmResource = keycloak.realm(realm);
-            UserResource userResource = realmResource.users().get(keycloakId);
-
-            // Récupérer les rôles effectifs
-            List<RoleRepresentation> effectiveRoles = userResource.roles().realmLevel().listEffective();
-            System.out.println("Rôles effectifs trouvés: " + effectiveRoles.size());
-
-            for (RoleRepresentation role : effectiveRoles) {
-                System.out.println("- Rôle effectif: " + role.getName());
-                String roleName = role.getName().toUpperCase();
-
-                if (roleName.equals("ADMIN") || roleName.equals("REALM-ADMIN")) {
-                    return UserRole.ADMIN;
-                } else if (roleName.equals("MERCHANT")) {
-                    return UserRole.MERCHANT;
-                }
-            }
-
-            // Si aucun rôle spécifique n'est trouvé, vérifier tous les rôles
-            List<RoleRepresentation> allRoles = userResource.roles().realmLevel().listAll();
-            System.out.println("Tous les rôles disponibles: " + allRoles.size());
-
-            for (RoleRepresentation role : allRoles) {
-                System.out.println("- Rôle disponible: " + role.getName());
-                String roleName = role.getName().toUpperCase();
-
-                if (roleName.equals("ADMIN") || roleName.equals("REALM-ADMIN")) {
-                    return UserRole.ADMIN;
-                } else if (roleName.equals("MERCHANT")) {
-                    return UserRole.MERCHANT;
-                }
-            }
-        } catch (Exception e) {
-            System.out.println("Erreur lors de la détermination du rôle: " + e.getMessage());
-            e.printStackTrace();
+            effectiveRoles = usersResource.get(keycloakId).roles().realmLevel().listEffective();
+            outcome = OUTCOME_SUCCESS;
+        } finally {
+            recordCalls("determine-role", outcome, 1);
         }
-
-        return UserRole.CUSTOMER;
-    }
-
-    private UserRole attemptAlternativeRoleDetermination(String keycloakId) {
-        try {
-            RealmResource realmResource = keycloak.realm(realm);
-            UserResource userResource = realmResource.users().get(keycloakId);
-
-            // Récupérer la représentation complète de l'utilisateur
-            UserRepresentation userRep = userResource.toRepresentation();
-
-            // Vérifier les attributs de l'utilisateur
-            if (userRep.getAttributes() != null) {
-                System.out.println("Vérification des attributs utilisateur...");
-                userRep.getAttributes().forEach((key, values) -> {
-                    System.out.println("Attribut: " + key + " = " + String.join(", ", values));
-                });
-            }
-
-            // Vérifier les rôles directement
-            List<RoleRepresentation> allRoles = userResource.roles().realmLevel().listAll();
-            System.out.println("Tous les rôles disponibles: " + allRoles.size());
-
-            for (RoleRepresentation role : allRoles) {
-                System.out.println("- Rôle disponible: " + role.getName());
-                String roleName = role.getName().toUpperCase();
-
-                if (roleName.equals("ADMIN") || roleName.equals("REALM-ADMIN")) {
-                    return UserRole.ADMIN;
-                } else if (roleName.equals("MERCHANT")) {
-                    return UserRole.MERCHANT;
-                }
-            }
-
-            // Dernière tentative: vérifier directement les groupes
-            if (userRep.getGroups() != null && !userRep.getGroups().isEmpty()) {
-                System.out.println("Groupes trouvés: " + String.join(", ", userRep.getGroups()));
-
-                for (String group : userRep.getGroups()) {
-                    String groupUpper = group.toUpperCase();
-                    if (groupUpper.contains("ADMIN")) {
-                        return UserRole.ADMIN;
-                    } else if (groupUpper.contains("MERCHANT")) {
-                        return UserRole.MERCHANT;
-                    }
-                }
-            }
-        } catch (Exception e) {
-            System.out.println("Erreur lors de la détermination alternative du rôle: " + e.getMessage());
-            e.printStackTrace();
+        Set<String> roleNames = effectiveRoles.stream()
+                .map(role -> role.getName().toUpperCase())
+                .collect(Collectors.toSet());
+        if (roleNames.contains("ADMIN") || roleNames.contains("REALM-ADMIN")) {
+            return UserRole.ADMIN;
+        }
+        if (roleNames.contains("MERCHANT")) {
+            return UserRole.MERCHANT;
         }
-
         return UserRole.CUSTOMER;
     }
-
-    // Méthode publique pour vérifier le rôle d'un utilisateur Keycloak
-    public UserRole determineRoleFromKeycloak(String keycloakId) {
-        return determineRoleWithRetry(keycloakId);
-    }
-}
\ No newline at end of file
+}
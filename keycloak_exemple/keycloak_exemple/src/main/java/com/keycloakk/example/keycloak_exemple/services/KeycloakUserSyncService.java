@@ -0,0 +1,487 @@
+package com.keycloakk.example.keycloak_exemple.services;
+
+import com.keycloakk.example.keycloak_exemple.model.SyncCursor;
+import com.keycloakk.example.keycloak_exemple.model.User;
+import com.keycloakk.example.keycloak_exemple.model.UserRole;
+import com.keycloakk.example.keycloak_exemple.repositories.StoreRepository;
+import com.keycloakk.example.keycloak_exemple.repositories.SyncCursorRepository;
+import com.keycloakk.example.keycloak_exemple.repositories.TransactionRepository;
+import com.keycloakk.example.keycloak_exemple.repositories.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.ws.rs.ClientErrorException;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.ProcessingException;
+import jakarta.ws.rs.WebApplicationException;
+import lombok.RequiredArgsConstructor;
+import org.keycloak.admin.client.resource.RealmResource;
+import org.keycloak.admin.client.resource.UsersResource;
+import org.keycloak.representations.idm.AdminEventRepresentation;
+import org.keycloak.representations.idm.EventRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+public class KeycloakUserSyncService {
+
+    static final String USERS_CURSOR = "keycloak-users";
+
+    // Types de ressources des événements d'administration qui modifient un utilisateur, son rôle, ou les rôles
+    // hérités via les groupes et les rôles composites
+    private static final List<String> ADMIN_RESOURCE_TYPES = List.of("USER", "REALM_ROLE_MAPPING", "GROUP_MEMBERSHIP",
+            "REALM_ROLE", "GROUP");
+
+    // Événements utilisateur hors API d'administration: inscription, modifications depuis la console de compte.
+    // À enregistrer sur le realm (Realm settings > Events > User events settings)
+    private static final List<String> USER_EVENT_TYPES = List.of("REGISTER", "UPDATE_PROFILE", "UPDATE_EMAIL", "DELETE_ACCOUNT");
+
+    private final RealmResource realmResource;
+    private final UsersResource usersResource;
+    private final KeycloakService keycloakService;
+    private final KeycloakOutboxService keycloakOutboxService;
+    private final UserIdentityCache userIdentityCache;
+    private final StoreDailyStatsService storeDailyStatsService;
+    private final UserRepository userRepository;
+    private final StoreRepository storeRepository;
+    private final TransactionRepository transactionRepository;
+    private final SyncCursorRepository syncCursorRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${keycloak.sync.page-size:500}")
+    private int pageSize;
+
+    @Value("${keycloak.sync.event-page-size:500}")
+    private int eventPageSize;
+
+    @Value("${keycloak.sync.full-reconciliation-interval:PT24H}")
+    private Duration fullReconciliationInterval;
+
+    // Vrai dès qu'une réconciliation complète a été persistée, par cette instance ou une autre
+    public boolean hasSynchronizedSnapshot() {
+        return syncCursorRepository.findById(USERS_CURSOR)
+                .map(cursor -> cursor.getLastFullSyncAt() != null)
+                .orElse(false);
+    }
+
+    /**
+     * Applique uniquement les changements signalés par les événements Keycloak depuis le curseur persisté:
+     * événements d'administration (API d'administration, console d'administration) et événements utilisateur
+     * (inscription, profil modifié depuis la console de compte). Nécessite l'enregistrement des deux types
+     * d'événements sur le realm, et Keycloak 23 ou plus pour le filtrage des événements par horodatage en millisecondes.
+     * <p>
+     * Retombe sur une réconciliation complète s'il n'existe pas encore de curseur, si la dernière réconciliation
+     * complète est plus ancienne que {@code keycloak.sync.full-reconciliation-interval}, si Keycloak refuse la
+     * lecture des événements, ou si un rôle composite ou un groupe a changé (les utilisateurs concernés ne sont
+     * pas identifiables par l'événement). Les utilisateurs importés ou modifiés par une fédération (LDAP, ...)
+     * ne produisent aucun événement: ils ne sont vus qu'à la réconciliation complète suivante, dont
+     * l'intervalle borne donc leur délai de prise en compte.
+     */
+    public void synchronizeIncrementally() {
+        SyncCursor cursor = syncCursorRepository.findById(USERS_CURSOR).orElse(null);
+        if (cursor == null || cursor.getLastEventTime() == null || isFullReconciliationDue(cursor)) {
+            synchronizeKeycloakUsers();
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        EventScan scan;
+        try {
+            // Fenêtre figée pour que la pagination reste stable pendant le cycle
+            scan = scanEvents(cursor.getLastEventTime(), start);
+        } catch (ClientErrorException e) {
+            System.out.println("Lecture des événements Keycloak refusée (HTTP " + e.getResponse().getStatus()
+                    + "), réconciliation complète");
+            synchronizeKeycloakUsers();
+            return;
+        }
+        if (scan.structuralChange) {
+            System.out.println("Rôle composite ou groupe modifié dans Keycloak, réconciliation complète");
+            synchronizeKeycloakUsers();
+            return;
+        }
+        int keycloakCalls = scan.keycloakCalls;
+
+        List<UserRepresentation> changedUsers = new ArrayList<>();
+        List<String> removedIds = new ArrayList<>();
+        for (String userId : scan.changedUserIds) {
+            keycloakCalls++;
+            try {
+                changedUsers.add(usersResource.get(userId).toRepresentation());
+            } catch (NotFoundException e) {
+                removedIds.add(userId);
+            }
+        }
+
+        // Rôle relu dans Keycloak (rôles effectifs: groupes et composites inclus) uniquement pour les nouveaux
+        // utilisateurs et ceux dont les rôles ou les groupes ont changé; les autres gardent leur rôle en base
+        Map<String, UserRole> knownRoles = changedUsers.isEmpty() ? Map.of()
+                : userRepository.findByKeycloakIdIn(changedUsers.stream().map(UserRepresentation::getId).toList())
+                        .stream()
+                        .collect(Collectors.toMap(User::getKeycloakId, User::getRole));
+        Map<String, UserRole> roles = new HashMap<>();
+        for (UserRepresentation kcUser : changedUsers) {
+            UserRole role = scan.roleChangedUserIds.contains(kcUser.getId()) ? null : knownRoles.get(kcUser.getId());
+            if (role == null) {
+                keycloakCalls++;
+                role = keycloakService.determineRoleFromKeycloak(kcUser.getId());
+            }
+            roles.put(kcUser.getId(), role);
+        }
+
+        UserSyncReport report = new UserSyncReport();
+        for (int from = 0; from < changedUsers.size(); from += pageSize) {
+            synchronizePage(changedUsers.subList(from, Math.min(from + pageSize, changedUsers.size())), roles::get, report);
+        }
+        deleteUsers(removedIds, report);
+        recordReport(report);
+
+        // Le curseur reste sur l'horodatage du dernier événement: les événements de cette même
+        // milliseconde seront relus au prochain cycle, ce qui est sans effet puisque l'application est idempotente.
+        cursor.setLastEventTime(scan.lastEventTime);
+        syncCursorRepository.save(cursor);
+
+        System.out.println("Synchronisation incrémentale: " + report + ", "
+                + keycloakCalls + " appel(s) Keycloak, " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    // Événements d'administration puis événements utilisateur de la fenêtre [from, to]
+    private EventScan scanEvents(long from, long to) {
+        EventScan scan = new EventScan(from);
+        String dateFrom = String.valueOf(from);
+        String dateTo = String.valueOf(to);
+
+        int first = 0;
+        List<AdminEventRepresentation> adminEvents;
+        do {
+            adminEvents = realmResource.getAdminEvents(null, null, null, null, null, null, ADMIN_RESOURCE_TYPES,
+                    dateFrom, dateTo, first, eventPageSize);
+            scan.keycloakCalls++;
+            for (AdminEventRepresentation event : adminEvents) {
+                scan.addAdminEvent(event.getResourceType(), extractUserId(event.getResourcePath()), event.getTime());
+            }
+            first += eventPageSize;
+        } while (adminEvents.size() == eventPageSize);
+
+        first = 0;
+        List<EventRepresentation> userEvents;
+        do {
+            userEvents = realmResource.getEvents(USER_EVENT_TYPES, null, null, dateFrom, dateTo, null, first, eventPageSize);
+            scan.keycloakCalls++;
+            for (EventRepresentation event : userEvents) {
+                scan.addUserEvent(event.getUserId(), event.getTime());
+            }
+            first += eventPageSize;
+        } while (userEvents.size() == eventPageSize);
+        return scan;
+    }
+
+    /**
+     * Réconciliation complète en flux: les utilisateurs Keycloak sont lus par pages de taille fixe,
+     * chaque page est rapprochée de la base en une seule requête, et les suppressions sont détectées
+     * en parcourant les identifiants de la base par pages contre un ensemble compact des identifiants vus.
+     * Un utilisateur absent du parcours n'est supprimé qu'après confirmation individuelle (404) par Keycloak.
+     */
+    public void synchronizeKeycloakUsers() {
+        System.out.println("=== DÉBUT DE SYNCHRONISATION DES UTILISATEURS ===");
+        long start = System.currentTimeMillis();
+
+        // Rôles résolus en mémoire à partir des membres des rôles, une seule fois par cycle
+        RoleMembershipIndex roleIndex = keycloakService.loadRoleMembershipIndex();
+
+        UserSyncReport report = new UserSyncReport();
+        KeycloakIdSet seenIds = new KeycloakIdSet();
+        int first = 0;
+        List<UserRepresentation> page;
+        do {
+            page = usersResource.list(first, pageSize);
+            synchronizePage(page, roleIndex::resolve, report);
+            page.forEach(kcUser -> seenIds.add(kcUser.getId()));
+            first += pageSize;
+        } while (page.size() == pageSize);
+        System.out.println("Nombre d'utilisateurs Keycloak trouvés: " + seenIds.size());
+
+        // Supprimer les utilisateurs supprimés dans Keycloak
+        List<String> removedIds = new ArrayList<>();
+        String after = "";
+        List<String> existingIds;
+        do {
+            existingIds = userRepository.findKeycloakIdsAfter(after, Limit.of(pageSize));
+            for (String keycloakId : existingIds) {
+                if (!seenIds.contains(keycloakId)) {
+                    removedIds.add(keycloakId);
+                }
+            }
+            if (!existingIds.isEmpty()) {
+                after = existingIds.get(existingIds.size() - 1);
+            }
+        } while (existingIds.size() == pageSize);
+
+        // La pagination par offset peut sauter des utilisateurs si la liste change pendant le parcours:
+        // chaque candidat est relu individuellement et n'est supprimé que si Keycloak répond 404
+        removedIds = confirmRemoved(removedIds);
+        if (!removedIds.isEmpty()) {
+            System.out.println("Suppression des utilisateurs qui n'existent plus dans Keycloak: " + removedIds.size());
+            deleteUsers(removedIds, report);
+        }
+        recordReport(report);
+
+        // Les événements antérieurs au début de la réconciliation sont couverts par le parcours complet; ceux
+        // survenus pendant la réconciliation seront relus par le cycle incrémental suivant
+        SyncCursor cursor = syncCursorRepository.findById(USERS_CURSOR)
+                .orElseGet(() -> new SyncCursor(USERS_CURSOR, null, null));
+        if (cursor.getLastEventTime() == null || cursor.getLastEventTime() < start) {
+            cursor.setLastEventTime(start);
+        }
+        cursor.setLastFullSyncAt(LocalDateTime.now());
+        syncCursorRepository.save(cursor);
+
+        System.out.println("=== FIN DE SYNCHRONISATION DES UTILISATEURS (" + report + ", "
+                + (System.currentTimeMillis() - start) + " ms) ===");
+    }
+
+    private List<String> confirmRemoved(List<String> candidateIds) {
+        List<String> confirmedIds = new ArrayList<>();
+        for (String keycloakId : candidateIds) {
+            try {
+                usersResource.get(keycloakId).toRepresentation();
+                System.out.println("Utilisateur " + keycloakId + " absent du parcours mais toujours présent dans Keycloak, conservé");
+            } catch (NotFoundException e) {
+                confirmedIds.add(keycloakId);
+            } catch (WebApplicationException | ProcessingException e) {
+                System.out.println("Vérification de l'utilisateur " + keycloakId + " impossible, conservé: " + e.getMessage());
+            }
+        }
+        return confirmedIds;
+    }
+
+    private boolean isFullReconciliationDue(SyncCursor cursor) {
+        return cursor.getLastFullSyncAt() == null
+                || cursor.getLastFullSyncAt().plus(fullReconciliationInterval).isBefore(LocalDateTime.now());
+    }
+
+    // Chemins de ressource de la forme "users/{id}" ou "users/{id}/role-mappings/realm"
+    private String extractUserId(String resourcePath) {
+        if (resourcePath == null || !resourcePath.startsWith("users/")) {
+            return null;
+        }
+        String[] segments = resourcePath.split("/");
+        return segments.length > 1 && !segments[1].isBlank() ? segments[1] : null;
+    }
+
+    /**
+     * Rapproche une page d'utilisateurs Keycloak de la base dans une seule transaction: une requête
+     * de lecture, puis les insertions et mises à jour envoyées en lots JDBC au commit.
+     */
+    private void synchronizePage(List<UserRepresentation> page, Function<String, UserRole> roleResolver, UserSyncReport report) {
+        if (page.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            List<String> pageIds = page.stream().map(UserRepresentation::getId).collect(Collectors.toList());
+            Map<String, User> existingUsers = userRepository.findByKeycloakIdIn(pageIds)
+                    .stream()
+                    .collect(Collectors.toMap(User::getKeycloakId, Function.identity()));
+
+            // Modifications ou suppressions locales pas encore appliquées dans Keycloak: ne pas les écraser
+            Set<String> pendingIds = new HashSet<>(keycloakOutboxService.findPendingKeycloakIds(pageIds));
+
+            List<User> toSave = new ArrayList<>();
+            List<String> updatedIds = new ArrayList<>();
+            for (UserRepresentation kcUser : page) {
+                report.setScanned(report.getScanned() + 1);
+                if (pendingIds.contains(kcUser.getId())) {
+                    report.setSkipped(report.getSkipped() + 1);
+                    continue;
+                }
+                UserRole role = roleResolver.apply(kcUser.getId());
+                long fingerprint = fingerprint(kcUser, role);
+                User existingUser = existingUsers.get(kcUser.getId());
+                if (existingUser == null) {
+                    System.out.println("Création d'un nouvel utilisateur: " + kcUser.getUsername() + " avec rôle: " + role);
+                    User user = createNewUser(kcUser, role);
+                    user.setSyncFingerprint(fingerprint);
+                    toSave.add(user);
+                    report.setCreated(report.getCreated() + 1);
+                } else if (existingUser.getSyncFingerprint() != null && existingUser.getSyncFingerprint() == fingerprint) {
+                    // Rien n'a changé depuis la dernière synchronisation: une seule comparaison en mémoire
+                    report.setSkipped(report.getSkipped() + 1);
+                } else {
+                    // Empreinte absente ou différente: comparaison champ par champ, puis mémorisation de l'empreinte
+                    if (updateExistingUser(existingUser, kcUser, role)) {
+                        report.setUpdated(report.getUpdated() + 1);
+                        updatedIds.add(existingUser.getKeycloakId());
+                    } else {
+                        report.setSkipped(report.getSkipped() + 1);
+                    }
+                    existingUser.setSyncFingerprint(fingerprint);
+                    toSave.add(existingUser);
+                }
+            }
+            userRepository.saveAll(toSave);
+            userIdentityCache.invalidateAll(updatedIds);
+        });
+    }
+
+    private User createNewUser(UserRepresentation kcUser, UserRole role) {
+        User user = new User();
+        user.setKeycloakId(kcUser.getId());
+        user.setUsername(kcUser.getUsername());
+        user.setEmail(kcUser.getEmail());
+        user.setFirstName(kcUser.getFirstName());
+        user.setLastName(kcUser.getLastName());
+        user.setRole(role);
+        return user;
+    }
+
+    /**
+     * Empreinte 64 bits des champs synchronisés, comparée à celle stockée sur {@link User} pour
+     * ignorer les utilisateurs inchangés.
+     */
+    static long fingerprint(UserRepresentation kcUser, UserRole role) {
+        String canonical = String.join("\u0000",
+                String.valueOf(kcUser.getUsername()),
+                String.valueOf(kcUser.getEmail()),
+                String.valueOf(kcUser.getFirstName()),
+                String.valueOf(kcUser.getLastName()),
+                role.name());
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+
+    private boolean updateExistingUser(User existingUser, UserRepresentation kcUser, UserRole newRole) {
+        boolean needsUpdate = false;
+
+        if (!Objects.equals(existingUser.getEmail(), kcUser.getEmail())) {
+            existingUser.setEmail(kcUser.getEmail());
+            needsUpdate = true;
+        }
+
+        if (!Objects.equals(existingUser.getUsername(), kcUser.getUsername())) {
+            existingUser.setUsername(kcUser.getUsername());
+            needsUpdate = true;
+        }
+
+        if (!Objects.equals(existingUser.getFirstName(), kcUser.getFirstName())) {
+            existingUser.setFirstName(kcUser.getFirstName());
+            needsUpdate = true;
+        }
+
+        if (!Objects.equals(existingUser.getLastName(), kcUser.getLastName())) {
+            existingUser.setLastName(kcUser.getLastName());
+            needsUpdate = true;
+        }
+
+        // Vérifier si le rôle a changé
+        if (existingUser.getRole() != newRole) {
+            System.out.println("Mise à jour du rôle pour " + existingUser.getUsername() + ": " + existingUser.getRole() + " -> " + newRole);
+            existingUser.setRole(newRole);
+            needsUpdate = true;
+        }
+
+        if (needsUpdate) {
+            System.out.println("Utilisateur mis à jour dans la base de données: " + existingUser.getUsername());
+        }
+        return needsUpdate;
+    }
+
+    /**
+     * Supprime les utilisateurs par requêtes ensemblistes ({@code DELETE ... WHERE keycloak_id IN (...)}),
+     * en reproduisant les cascades de {@link User} vers ses boutiques et transactions.
+     */
+    private void deleteUsers(List<String> keycloakIds, UserSyncReport report) {
+        for (int from = 0; from < keycloakIds.size(); from += pageSize) {
+            List<String> chunk = keycloakIds.subList(from, Math.min(from + pageSize, keycloakIds.size()));
+            transactionTemplate.executeWithoutResult(status -> {
+                // Les agrégats des boutiques supprimées partent en cascade, ceux des autres boutiques sont décrémentés
+                storeDailyStatsService.recordCustomersDeleted(chunk);
+                transactionRepository.deleteByUserKeycloakIdIn(chunk);
+                storeRepository.deleteByMerchantKeycloakIdIn(chunk);
+                int deleted = userRepository.deleteByKeycloakIdIn(chunk);
+                userIdentityCache.invalidateAll(chunk);
+                report.setDeleted(report.getDeleted() + deleted);
+                System.out.println("Utilisateurs supprimés de la base de données: " + deleted);
+            });
+        }
+    }
+
+    /**
+     * Résultat de la lecture des événements d'un cycle incrémental: utilisateurs modifiés, dont ceux dont les
+     * rôles ou les groupes ont changé, et changements de structure (rôle composite, groupe) imposant une
+     * réconciliation complète.
+     */
+    static final class EventScan {
+
+        final Set<String> changedUserIds = new LinkedHashSet<>();
+        final Set<String> roleChangedUserIds = new HashSet<>();
+        boolean structuralChange;
+        long lastEventTime;
+        int keycloakCalls;
+
+        EventScan(long lastEventTime) {
+            this.lastEventTime = lastEventTime;
+        }
+
+        void addAdminEvent(String resourceType, String userId, long time) {
+            lastEventTime = Math.max(lastEventTime, time);
+            boolean roleChange = "REALM_ROLE_MAPPING".equals(resourceType) || "GROUP_MEMBERSHIP".equals(resourceType);
+            if (userId == null) {
+                // Rôles d'un groupe, composites d'un rôle, groupe déplacé ou supprimé: membres impossibles à déterminer
+                structuralChange |= roleChange || "REALM_ROLE".equals(resourceType) || "GROUP".equals(resourceType);
+                return;
+            }
+            changedUserIds.add(userId);
+            if (roleChange) {
+                roleChangedUserIds.add(userId);
+            }
+        }
+
+        void addUserEvent(String userId, long time) {
+            lastEventTime = Math.max(lastEventTime, time);
+            if (userId != null) {
+                changedUserIds.add(userId);
+            }
+        }
+    }
+
+    private void recordReport(UserSyncReport report) {
+        increment("scanned", report.getScanned());
+        increment("skipped", report.getSkipped());
+        increment("updated", report.getUpdated());
+        increment("created", report.getCreated());
+        increment("deleted", report.getDeleted());
+    }
+
+    private void increment(String outcome, long amount) {
+        Counter.builder("keycloak.user.sync")
+                .description("Utilisateurs traités par la synchronisation Keycloak, par résultat")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment(amount);
+    }
+}
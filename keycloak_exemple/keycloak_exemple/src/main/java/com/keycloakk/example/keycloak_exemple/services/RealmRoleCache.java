@@ -0,0 +1,59 @@
+package com.keycloakk.example.keycloak_exemple.services;
+
+import com.keycloakk.example.keycloak_exemple.model.UserRole;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.keycloak.admin.client.resource.RealmResource;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache des représentations des rôles de realm gérés par l'application. Ces rôles ne changent
+ * pratiquement jamais: on évite ainsi un aller-retour vers Keycloak à chaque attribution de rôle.
+ */
+@Component
+public class RealmRoleCache {
+
+    private final RealmResource realmResource;
+    private final Duration ttl;
+    private final Counter hits;
+    private final Counter misses;
+    private final Map<UserRole, CachedRole> roles = new ConcurrentHashMap<>();
+
+    public RealmRoleCache(RealmResource realmResource,
+                          MeterRegistry meterRegistry,
+                          @Value("${keycloak.role-cache.ttl:PT10M}") Duration ttl) {
+        this.realmResource = realmResource;
+        this.ttl = ttl;
+        this.hits = meterRegistry.counter("keycloak.role.cache", "result", "hit");
+        this.misses = meterRegistry.counter("keycloak.role.cache", "result", "miss");
+    }
+
+    public RoleRepresentation get(UserRole role) {
+        long now = System.nanoTime();
+        CachedRole cached = roles.get(role);
+        if (cached != null && now - cached.loadedAt() < ttl.toNanos()) {
+            hits.increment();
+            return cached.representation();
+        }
+        misses.increment();
+        // Deux chargements concurrents sont sans conséquence: la dernière valeur lue l'emporte
+        RoleRepresentation representation = realmResource.roles().get(role.name()).toRepresentation();
+        roles.put(role, new CachedRole(representation, now));
+        return representation;
+    }
+
+    // Vide le cache, par exemple après une modification des rôles dans la console Keycloak
+    public void refresh() {
+        roles.clear();
+        System.out.println("Cache des rôles de realm vidé");
+    }
+
+    private record CachedRole(RoleRepresentation representation, long loadedAt) {
+    }
+}
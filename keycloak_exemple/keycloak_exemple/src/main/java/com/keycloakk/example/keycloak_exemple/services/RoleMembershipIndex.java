@@ -0,0 +1,66 @@
+package com.keycloakk.example.keycloak_exemple.services;
+
+import com.keycloakk.example.keycloak_exemple.model.UserRole;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Instantané des membres des rôles ADMIN / REALM-ADMIN / MERCHANT (directs, via un groupe ou via un rôle
+ * composite), construit une fois par réconciliation complète pour résoudre le rôle de chaque utilisateur en mémoire.
+ */
+public class RoleMembershipIndex {
+
+    private final Set<String> adminIds;
+    private final Set<String> merchantIds;
+
+    public RoleMembershipIndex(Set<String> adminIds, Set<String> merchantIds) {
+        this.adminIds = adminIds;
+        this.merchantIds = merchantIds;
+    }
+
+    // Même priorité que la détermination du rôle via Keycloak: ADMIN, puis MERCHANT, sinon CUSTOMER
+    public UserRole resolve(String keycloakId) {
+        if (adminIds.contains(keycloakId)) {
+            return UserRole.ADMIN;
+        }
+        if (merchantIds.contains(keycloakId)) {
+            return UserRole.MERCHANT;
+        }
+        return UserRole.CUSTOMER;
+    }
+
+    /**
+     * Rôles qui accordent l'un des rôles cibles: les cibles elles-mêmes et tout rôle composite qui les contient,
+     * directement ou par d'autres composites. Noms comparés sans tenir compte de la casse, comme pour les rôles effectifs.
+     */
+    public static Set<String> grantingRoles(Map<String, Set<String>> compositesByRole, Set<String> targetRoles) {
+        Set<String> granting = new HashSet<>();
+        Set<String> grantingUpper = new HashSet<>();
+        for (String target : targetRoles) {
+            granting.add(target);
+            grantingUpper.add(target.toUpperCase());
+        }
+        // Point fixe: chaque passe ajoute les parents directs des rôles déjà retenus (cycles de composites sans effet)
+        boolean added;
+        do {
+            added = false;
+            for (Map.Entry<String, Set<String>> entry : compositesByRole.entrySet()) {
+                if (grantingUpper.contains(entry.getKey().toUpperCase())) {
+                    continue;
+                }
+                if (entry.getValue().stream().anyMatch(composite -> grantingUpper.contains(composite.toUpperCase()))) {
+                    granting.add(entry.getKey());
+                    grantingUpper.add(entry.getKey().toUpperCase());
+                    added = true;
+                }
+            }
+        } while (added);
+        return granting;
+    }
+
+    public int size() {
+        return adminIds.size() + merchantIds.size();
+    }
+}
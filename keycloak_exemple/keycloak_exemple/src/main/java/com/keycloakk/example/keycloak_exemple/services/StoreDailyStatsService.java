@@ -0,0 +1,101 @@
+package com.keycloakk.example.keycloak_exemple.services;
+
+import com.keycloakk.example.keycloak_exemple.dtos.TransactionStatusChange;
+import com.keycloakk.example.keycloak_exemple.model.Transaction;
+import com.keycloakk.example.keycloak_exemple.model.TransactionStatus;
+import com.keycloakk.example.keycloak_exemple.repositories.StoreDailyStatsRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keeps the store_daily_stats rollup in step with transaction writes, inside the caller's transaction.
+ * <p>
+ * Every write upserts a counter row, which stays locked until commit. To keep concurrent writers of a busy
+ * store from queuing on a single (store, day, status) row, each transaction lands in one of
+ * {@code transaction.stats.slots} rows chosen from its id; reads sum the slots back. Deltas are applied in
+ * key order so that two transactions touching the same rows always lock them in the same order.
+ */
+@Service
+@RequiredArgsConstructor
+public class StoreDailyStatsService {
+
+    private static final Comparator<StatsKey> KEY_ORDER = Comparator.comparing(StatsKey::storeId)
+            .thenComparing(StatsKey::day)
+            .thenComparing(StatsKey::status)
+            .thenComparingInt(StatsKey::slot);
+
+    private final StoreDailyStatsRepository storeDailyStatsRepository;
+
+    @Value("${transaction.stats.slots:8}")
+    private int slots;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCreated(Collection<Transaction> transactions) {
+        Map<StatsKey, Delta> deltas = new TreeMap<>(KEY_ORDER);
+        for (Transaction transaction : transactions) {
+            if (transaction.getStore() != null) {
+                add(deltas, transaction.getStore().getId(), transaction.getTransactionDate(), transaction.getId(),
+                        transaction.getStatus(), 1, transaction.getAmount());
+            }
+        }
+        apply(deltas);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordStatusChanges(Collection<TransactionStatusChange> changes, TransactionStatus from, TransactionStatus to) {
+        Map<StatsKey, Delta> deltas = new TreeMap<>(KEY_ORDER);
+        for (TransactionStatusChange change : changes) {
+            if (change.storeId() != null) {
+                add(deltas, change.storeId(), change.transactionDate(), change.id(), from, -1, change.amount());
+                add(deltas, change.storeId(), change.transactionDate(), change.id(), to, 1, change.amount());
+            }
+        }
+        apply(deltas);
+    }
+
+    // Must run before the customers' transactions are deleted
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCustomersDeleted(Collection<String> keycloakIds) {
+        if (!keycloakIds.isEmpty()) {
+            storeDailyStatsRepository.subtractCustomerTransactions(keycloakIds);
+        }
+    }
+
+    // sign -1 removes the transaction from the counters
+    private void add(Map<StatsKey, Delta> deltas, Long storeId, LocalDateTime transactionDate, Long transactionId,
+                     TransactionStatus status, int sign, BigDecimal amount) {
+        StatsKey key = new StatsKey(storeId, transactionDate.toLocalDate(), status.name(),
+                (int) Math.floorMod(transactionId, (long) slots));
+        deltas.merge(key, new Delta(sign, sign > 0 ? amount : amount.negate()), Delta::plus);
+    }
+
+    private void apply(Map<StatsKey, Delta> deltas) {
+        deltas.forEach((key, delta) -> {
+            if (delta.count() != 0 || delta.amount().signum() != 0) {
+                storeDailyStatsRepository.addDelta(key.storeId(), key.day(), key.status(), key.slot(),
+                        delta.count(), delta.amount());
+            }
+        });
+    }
+
+    record StatsKey(Long storeId, LocalDate day, String status, int slot) {
+    }
+
+    record Delta(long count, BigDecimal amount) {
+
+        Delta plus(Delta other) {
+            return new Delta(count + other.count, amount.add(other.amount));
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.keycloakk.example.keycloak_exemple.services;
 
 import com.keycloakk.example.keycloak_exemple.dtos.StoreCreationDTO;
 import com.keycloakk.example.keycloak_exemple.dtos.StoreDTO;
+import com.keycloakk.example.keycloak_exemple.dtos.UserIdentity;
 import com.keycloakk.example.keycloak_exemple.exception.ResourceNotFoundException;
 import com.keycloakk.example.keycloak_exemple.exception.UnauthorizedOperationException;
 import com.keycloakk.example.keycloak_exemple.model.Store;
@@ -15,7 +16,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -23,7 +23,8 @@ public class StoreService {
 
     private final StoreRepository storeRepository;
     private final UserRepository userRepository;
-    private final KeycloakService keycloakService;
+    private final UserIdentityCache userIdentityCache;
+    private final UserRoleReconciler userRoleReconciler;
 
 @Transactional
 public StoreDTO createStore(StoreCreationDTO storeCreationDTO, String merchantId) {
@@ -31,18 +32,10 @@ public StoreDTO createStore(StoreCreationDTO storeCreationDTO, String merchantId
     User merchant = userRepository.findByKeycloakId(merchantId)
             .orElseThrow(() -> new ResourceNotFoundException("Merchant not found with Keycloak ID: " + merchantId));
 
-    // Fetch the user's roles from Keycloak
-    UserRole keycloakRole = keycloakService.determineRoleFromKeycloak(merchantId);
-
-    // Update the user's role in the database if it differs from Keycloak
-    if (merchant.getRole() != keycloakRole) {
-        merchant.setRole(keycloakRole);
-        userRepository.save(merchant);
-    }
-
-    // Verify that the user is a merchant
-    if (keycloakRole != UserRole.MERCHANT) {
-        throw new UnauthorizedOperationException("Only merchants can create stores");
+    // The MERCHANT role comes from the verified JWT (checked by the controller); if the database
+    // disagrees, it is realigned with Keycloak asynchronously instead of calling Keycloak here
+    if (merchant.getRole() != UserRole.MERCHANT) {
+        userRoleReconciler.reconcile(merchantId);
     }
 
     Store store = Store.createStore(
@@ -56,39 +49,32 @@ public StoreDTO createStore(StoreCreationDTO storeCreationDTO, String merchantId
     return mapToDTO(savedStore);
 }
     @Transactional(readOnly = true)
-    public StoreDTO getStoreById(String id) {
-        Store store = storeRepository.findById(id)
+    public StoreDTO getStoreById(Long id) {
+        return storeRepository.findDTOById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Store not found with id: " + id));
-        return mapToDTO(store);
     }
 
     @Transactional(readOnly = true)
     public List<StoreDTO> getAllStores() {
-        return storeRepository.findAll().stream()
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
+        return storeRepository.findAllDTOs();
     }
 
     @Transactional(readOnly = true)
     public List<StoreDTO> getStoresByMerchant(String merchantId) {
         // Find the merchant by keycloakId instead of id
-        User merchant = userRepository.findByKeycloakId(merchantId)
+        UserIdentity merchant = userIdentityCache.findByKeycloakId(merchantId)
                 .orElseThrow(() -> new ResourceNotFoundException("Merchant not found with Keycloak ID: " + merchantId));
 
-        return storeRepository.findByMerchant(merchant).stream()
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
+        return storeRepository.findDTOsByMerchantId(merchant.id());
     }
 
     @Transactional(readOnly = true)
     public List<StoreDTO> searchStoresByName(String name) {
-        return storeRepository.findByNameContainingIgnoreCase(name).stream()
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
+        return storeRepository.searchDTOsByName(name);
     }
 
     @Transactional
-    public StoreDTO updateStore(String id, StoreDTO storeDTO, String merchantId) {
+    public StoreDTO updateStore(Long id, StoreDTO storeDTO, String merchantId) {
         Store store = storeRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Store not found with id: " + id));
 
@@ -106,7 +92,7 @@ public StoreDTO createStore(StoreCreationDTO storeCreationDTO, String merchantId
     }
 
     @Transactional
-    public void deleteStore(String id, String merchantId) {
+    public void deleteStore(Long id, String merchantId) {
         Store store = storeRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Store not found with id: " + id));
 
@@ -0,0 +1,201 @@
+package com.keycloakk.example.keycloak_exemple.services;
+
+import com.keycloakk.example.keycloak_exemple.dtos.TransactionBatchItemDTO;
+import com.keycloakk.example.keycloak_exemple.dtos.TransactionBatchItemResultDTO;
+import com.keycloakk.example.keycloak_exemple.dtos.TransactionBatchResultDTO;
+import com.keycloakk.example.keycloak_exemple.dtos.UserIdentity;
+import com.keycloakk.example.keycloak_exemple.exception.ResourceNotFoundException;
+import com.keycloakk.example.keycloak_exemple.model.Transaction;
+import com.keycloakk.example.keycloak_exemple.repositories.StoreRepository;
+import com.keycloakk.example.keycloak_exemple.repositories.TransactionRepository;
+import com.keycloakk.example.keycloak_exemple.repositories.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk ingestion of point-of-sale transactions. Items are read one by one from the request and
+ * persisted in chunks, each chunk in its own transaction: store ownership and customers are checked
+ * with one query per chunk, rows are inserted as JDBC batches using pooled sequence ids.
+ * <p>
+ * A merchant may only attach a transaction to a customer who already bought at the same store: knowing a
+ * customer id is not enough to charge that customer from any store.
+ */
+@Service
+@RequiredArgsConstructor
+public class TransactionBatchService {
+
+    private final TransactionRepository transactionRepository;
+    private final StoreRepository storeRepository;
+    private final UserRepository userRepository;
+    private final UserIdentityCache userIdentityCache;
+    private final StoreDailyStatsService storeDailyStatsService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${transaction.batch.chunk-size:500}")
+    private int chunkSize;
+
+    public TransactionBatchResultDTO createTransactions(Iterator<TransactionBatchItemDTO> items, String merchantId) {
+        UserIdentity merchant = userIdentityCache.findByKeycloakId(merchantId)
+                .orElseThrow(() -> new ResourceNotFoundException("Merchant not found with Keycloak ID: " + merchantId));
+
+        List<TransactionBatchItemResultDTO> results = new ArrayList<>();
+        // Ownership is checked once per store for the whole batch
+        Map<Long, Boolean> ownedStores = new HashMap<>();
+        List<TransactionBatchItemDTO> chunk = new ArrayList<>(chunkSize);
+        int index = 0;
+        while (true) {
+            TransactionBatchItemDTO item;
+            try {
+                if (!items.hasNext()) {
+                    break;
+                }
+                item = items.next();
+            } catch (RuntimeException e) {
+                // Malformed input: the rest of the stream cannot be read reliably
+                persistChunk(chunk, index - chunk.size(), merchant, ownedStores, results);
+                chunk.clear();
+                results.add(rejected(index, "Malformed item, ingestion stopped: " + e.getMessage()));
+                break;
+            }
+            chunk.add(item);
+            index++;
+            if (chunk.size() == chunkSize) {
+                persistChunk(chunk, index - chunk.size(), merchant, ownedStores, results);
+                chunk.clear();
+            }
+        }
+        persistChunk(chunk, index - chunk.size(), merchant, ownedStores, results);
+        results.sort(Comparator.comparingInt(TransactionBatchItemResultDTO::getIndex));
+
+        int created = (int) results.stream()
+                .filter(result -> result.getOutcome() == TransactionBatchItemResultDTO.Outcome.CREATED)
+                .count();
+        return new TransactionBatchResultDTO(created, results.size() - created, results);
+    }
+
+    private void persistChunk(List<TransactionBatchItemDTO> chunk, int firstIndex, UserIdentity merchant,
+                              Map<Long, Boolean> ownedStores, List<TransactionBatchItemResultDTO> results) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<TransactionBatchItemResultDTO> chunkResults;
+        try {
+            chunkResults = transactionTemplate.execute(status -> insertChunk(chunk, firstIndex, merchant, ownedStores));
+        } catch (RuntimeException e) {
+            // The chunk's transaction was rolled back: none of its items were stored
+            chunkResults = new ArrayList<>();
+            for (int i = 0; i < chunk.size(); i++) {
+                chunkResults.add(rejected(firstIndex + i, "Chunk could not be stored: " + e.getClass().getSimpleName()));
+            }
+        }
+        results.addAll(chunkResults);
+    }
+
+    private List<TransactionBatchItemResultDTO> insertChunk(List<TransactionBatchItemDTO> chunk, int firstIndex, UserIdentity merchant,
+                                                            Map<Long, Boolean> ownedStores) {
+        List<TransactionBatchItemResultDTO> results = new ArrayList<>();
+        Set<Long> unknownStores = chunk.stream()
+                .map(TransactionBatchItemDTO::getStoreId)
+                .filter(Objects::nonNull)
+                .filter(storeId -> !ownedStores.containsKey(storeId))
+                .collect(Collectors.toSet());
+        if (!unknownStores.isEmpty()) {
+            Set<Long> owned = new HashSet<>(storeRepository.findIdsByMerchantIdAndIdIn(merchant.id(), unknownStores));
+            unknownStores.forEach(storeId -> ownedStores.put(storeId, owned.contains(storeId)));
+        }
+
+        Map<Long, Set<Long>> customersByStore = findKnownCustomers(chunk, ownedStores);
+
+        List<Transaction> toSave = new ArrayList<>();
+        List<Integer> savedIndexes = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            TransactionBatchItemDTO item = chunk.get(i);
+            String error = validate(item, ownedStores, customersByStore);
+            if (error != null) {
+                results.add(rejected(firstIndex + i, error));
+                continue;
+            }
+            Transaction transaction = Transaction.createTransaction(
+                    item.getAmount(),
+                    item.getDescription(),
+                    item.getCustomerId() == null ? null : userRepository.getReferenceById(item.getCustomerId()),
+                    storeRepository.getReferenceById(item.getStoreId())
+            );
+            if (item.getTransactionDate() != null) {
+                transaction.setTransactionDate(item.getTransactionDate());
+            }
+            toSave.add(transaction);
+            savedIndexes.add(firstIndex + i);
+        }
+
+        transactionRepository.saveAll(toSave);
+        storeDailyStatsService.recordCreated(toSave);
+        for (int i = 0; i < toSave.size(); i++) {
+            results.add(new TransactionBatchItemResultDTO(savedIndexes.get(i),
+                    TransactionBatchItemResultDTO.Outcome.CREATED, toSave.get(i).getId(), null));
+        }
+        return results;
+    }
+
+    // Customers of the chunk who already have a transaction at the (owned) store of their item, by store
+    private Map<Long, Set<Long>> findKnownCustomers(List<TransactionBatchItemDTO> chunk, Map<Long, Boolean> ownedStores) {
+        Set<Long> storeIds = new HashSet<>();
+        Set<Long> customerIds = new HashSet<>();
+        for (TransactionBatchItemDTO item : chunk) {
+            if (item != null && item.getCustomerId() != null && ownedStores.getOrDefault(item.getStoreId(), false)) {
+                storeIds.add(item.getStoreId());
+                customerIds.add(item.getCustomerId());
+            }
+        }
+        Map<Long, Set<Long>> customersByStore = new HashMap<>();
+        if (customerIds.isEmpty()) {
+            return customersByStore;
+        }
+        for (Object[] row : transactionRepository.findStoreCustomerPairs(storeIds, customerIds)) {
+            customersByStore.computeIfAbsent((Long) row[0], storeId -> new HashSet<>()).add((Long) row[1]);
+        }
+        return customersByStore;
+    }
+
+    private String validate(TransactionBatchItemDTO item, Map<Long, Boolean> ownedStores, Map<Long, Set<Long>> customersByStore) {
+        if (item == null) {
+            return "Empty item";
+        }
+        if (item.getAmount() == null || item.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+            return "Amount must be positive";
+        }
+        if (item.getStoreId() == null) {
+            return "Store ID is required";
+        }
+        if (!ownedStores.getOrDefault(item.getStoreId(), false)) {
+            return "Store " + item.getStoreId() + " not found or not owned by you";
+        }
+        if (item.getCustomerId() != null
+                && !customersByStore.getOrDefault(item.getStoreId(), Set.of()).contains(item.getCustomerId())) {
+            return "Customer " + item.getCustomerId() + " has no previous purchase at store " + item.getStoreId();
+        }
+        if (item.getTransactionDate() != null && item.getTransactionDate().isAfter(LocalDateTime.now())) {
+            return "Transaction date cannot be in the future";
+        }
+        return null;
+    }
+
+    private TransactionBatchItemResultDTO rejected(int index, String error) {
+        return new TransactionBatchItemResultDTO(index, TransactionBatchItemResultDTO.Outcome.REJECTED, null, error);
+    }
+}
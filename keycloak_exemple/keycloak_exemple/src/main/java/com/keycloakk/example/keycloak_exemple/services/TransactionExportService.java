@@ -0,0 +1,155 @@
+package com.keycloakk.example.keycloak_exemple.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.keycloakk.example.keycloak_exemple.dtos.TransactionExportRow;
+import com.keycloakk.example.keycloak_exemple.dtos.UserIdentity;
+import com.keycloakk.example.keycloak_exemple.exception.InvalidRequestException;
+import com.keycloakk.example.keycloak_exemple.exception.ResourceNotFoundException;
+import com.keycloakk.example.keycloak_exemple.exception.UnauthorizedOperationException;
+import com.keycloakk.example.keycloak_exemple.repositories.StoreRepository;
+import com.keycloakk.example.keycloak_exemple.repositories.TransactionRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Streams a store's transactions for a date range as CSV or NDJSON. Rows are read with a
+ * forward-only cursor (JDBC fetch size) as projections and written to the response as they
+ * arrive, so memory use does not depend on the number of rows exported.
+ */
+@Service
+@RequiredArgsConstructor
+public class TransactionExportService {
+
+    public enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Format parse(String value) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(value)) {
+                    return format;
+                }
+            }
+            throw new InvalidRequestException("Unsupported export format: " + value);
+        }
+    }
+
+    private static final int FLUSH_EVERY_ROWS = 1000;
+
+    private final StoreRepository storeRepository;
+    private final TransactionRepository transactionRepository;
+    private final UserIdentityCache userIdentityCache;
+    private final ObjectMapper objectMapper;
+
+    // Checked before the response starts, so that errors are still reported with their status code
+    @Transactional(readOnly = true)
+    public void checkStoreOwnership(Long storeId, String merchantId) {
+        UserIdentity merchant = userIdentityCache.findByKeycloakId(merchantId)
+                .orElseThrow(() -> new ResourceNotFoundException("Merchant not found with Keycloak ID: " + merchantId));
+        Long ownerId = storeRepository.findMerchantIdById(storeId)
+                .orElseThrow(() -> new ResourceNotFoundException("Store not found with id: " + storeId));
+        if (!ownerId.equals(merchant.id())) {
+            throw new UnauthorizedOperationException("You can only export transactions from your own stores");
+        }
+    }
+
+    // Runs on the response streaming thread; the transaction keeps the server-side cursor open while rows are written
+    @Transactional(readOnly = true)
+    public void export(Long storeId, LocalDateTime start, LocalDateTime end, Format format, OutputStream out) throws IOException {
+        try (Stream<TransactionExportRow> rows = transactionRepository.streamExportRows(storeId, start, end)) {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            if (format == Format.CSV) {
+                writeCsv(rows.iterator(), writer);
+            } else {
+                writeNdjson(rows.iterator(), writer);
+            }
+            writer.flush();
+        }
+    }
+
+    private void writeCsv(Iterator<TransactionExportRow> rows, Writer writer) throws IOException {
+        writer.write("id,amount,transaction_date,description,status,customer_id,store_id\n");
+        int count = 0;
+        while (rows.hasNext()) {
+            TransactionExportRow row = rows.next();
+            writer.write(String.valueOf(row.id()));
+            writer.write(',');
+            writer.write(row.amount().toPlainString());
+            writer.write(',');
+            writer.write(row.transactionDate().toString());
+            writer.write(',');
+            writer.write(csvField(row.description()));
+            writer.write(',');
+            writer.write(row.status().name());
+            writer.write(',');
+            writer.write(row.customerId() == null ? "" : String.valueOf(row.customerId()));
+            writer.write(',');
+            writer.write(String.valueOf(row.storeId()));
+            writer.write('\n');
+            if (++count % FLUSH_EVERY_ROWS == 0) {
+                writer.flush();
+            }
+        }
+    }
+
+    private void writeNdjson(Iterator<TransactionExportRow> rows, Writer writer) throws IOException {
+        // One generator for all rows, values separated by line breaks and flushed in groups rather than per row
+        ObjectWriter rowWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(writer);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(new SerializedString("\n"));
+        int count = 0;
+        while (rows.hasNext()) {
+            rowWriter.writeValue(generator, rows.next());
+            if (++count % FLUSH_EVERY_ROWS == 0) {
+                generator.flush();
+            }
+        }
+        if (count > 0) {
+            generator.writeRaw('\n');
+        }
+        generator.flush();
+    }
+
+    // RFC 4180: quote fields containing a separator, quote or line break, doubling inner quotes
+    static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
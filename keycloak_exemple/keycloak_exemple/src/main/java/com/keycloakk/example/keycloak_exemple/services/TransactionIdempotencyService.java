@@ -0,0 +1,233 @@
+package com.keycloakk.example.keycloak_exemple.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.keycloakk.example.keycloak_exemple.dtos.TransactionCreationDTO;
+import com.keycloakk.example.keycloak_exemple.dtos.TransactionDTO;
+import com.keycloakk.example.keycloak_exemple.exception.InvalidRequestException;
+import com.keycloakk.example.keycloak_exemple.exception.ResourceAlreadyExistsException;
+import com.keycloakk.example.keycloak_exemple.model.TransactionIdempotencyKey;
+import com.keycloakk.example.keycloak_exemple.model.TransactionIdempotencyKeyId;
+import com.keycloakk.example.keycloak_exemple.repositories.TransactionIdempotencyKeyRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Idempotent transaction creation for client retries carrying an {@code Idempotency-Key} header. Keys are
+ * scoped to the customer and kept for {@code transaction.idempotency.ttl}.
+ * <p>
+ * A replay is answered from a bounded local cache, or else from the transaction_idempotency_key table, with
+ * the response of the original request. Duplicates arriving while the original is still running wait for
+ * its outcome: on this instance through the in-flight map, across instances on the primary key of the
+ * table, which is claimed in the same database transaction as the insert. A failed request leaves no key
+ * behind, so it can be retried. A key older than the TTL is treated as absent, whether or not the purge
+ * has removed it yet.
+ */
+@Service
+public class TransactionIdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final TransactionService transactionService;
+    private final TransactionIdempotencyKeyRepository idempotencyKeyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Duration ttl;
+    private final Cache<String, StoredResponse> responses;
+    private final ConcurrentMap<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+
+    public TransactionIdempotencyService(TransactionService transactionService,
+                                         TransactionIdempotencyKeyRepository idempotencyKeyRepository,
+                                         TransactionTemplate transactionTemplate,
+                                         ObjectMapper objectMapper,
+                                         MeterRegistry meterRegistry,
+                                         @Value("${transaction.idempotency.cache-max-size:100000}") long cacheMaxSize,
+                                         @Value("${transaction.idempotency.ttl:PT24H}") Duration ttl) {
+        this.transactionService = transactionService;
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.ttl = ttl;
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new Expiry<String, StoredResponse>() {
+                    // Entries expire with the key itself, not a full TTL after they were cached
+                    @Override
+                    public long expireAfterCreate(String key, StoredResponse response, long currentTime) {
+                        return Math.max(0, Duration.between(LocalDateTime.now(), response.createdAt().plus(ttl)).toNanos());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, StoredResponse response, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, response, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, StoredResponse response, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, "transactionIdempotency");
+    }
+
+    public TransactionDTO createTransaction(TransactionCreationDTO transactionCreationDTO, String customerId, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return transactionService.createTransaction(transactionCreationDTO, customerId);
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new InvalidRequestException("Idempotency-Key must be between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+        String fingerprint = fingerprint(transactionCreationDTO);
+        String cacheKey = customerId + ":" + idempotencyKey;
+
+        StoredResponse cached = responses.getIfPresent(cacheKey);
+        if (cached != null) {
+            record("cached");
+            return replay(cached, fingerprint);
+        }
+
+        CompletableFuture<StoredResponse> mine = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> running = inFlight.putIfAbsent(cacheKey, mine);
+        if (running != null) {
+            record("coalesced");
+            return replay(await(running), fingerprint);
+        }
+        try {
+            StoredResponse response = execute(transactionCreationDTO, customerId, idempotencyKey, fingerprint, true);
+            responses.put(cacheKey, response);
+            mine.complete(response);
+            return replay(response, fingerprint);
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(cacheKey, mine);
+        }
+    }
+
+    private StoredResponse execute(TransactionCreationDTO transactionCreationDTO, String customerId, String idempotencyKey,
+                                   String fingerprint, boolean retryIfExpired) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiredBefore = now.minus(ttl);
+        try {
+            StoredResponse created = transactionTemplate.execute(status -> {
+                if (idempotencyKeyRepository.claim(customerId, idempotencyKey, fingerprint, now, expiredBefore) == 0) {
+                    throw new KeyAlreadyClaimedException();
+                }
+                TransactionDTO transaction = transactionService.createTransaction(transactionCreationDTO, customerId);
+                idempotencyKeyRepository.complete(customerId, idempotencyKey, transaction.getId(), toJson(transaction));
+                return new StoredResponse(fingerprint, transaction, now);
+            });
+            record("created");
+            return created;
+        } catch (KeyAlreadyClaimedException e) {
+            // Committed by an earlier request, possibly on another instance
+            Optional<TransactionIdempotencyKey> stored = idempotencyKeyRepository
+                    .findById(new TransactionIdempotencyKeyId(customerId, idempotencyKey))
+                    .filter(key -> !key.getCreatedAt().isBefore(expiredBefore));
+            if (stored.isEmpty()) {
+                // Purged or expired since the claim: absent, so claim it again
+                if (!retryIfExpired) {
+                    throw new IllegalStateException("Idempotency key claimed but not found: " + idempotencyKey);
+                }
+                return execute(transactionCreationDTO, customerId, idempotencyKey, fingerprint, false);
+            }
+            record("stored");
+            return new StoredResponse(stored.get().getRequestFingerprint(), fromJson(stored.get().getResponse()),
+                    stored.get().getCreatedAt());
+        }
+    }
+
+    // The same key sent with a different body is a client error, not a retry
+    private TransactionDTO replay(StoredResponse response, String fingerprint) {
+        if (!response.fingerprint().equals(fingerprint)) {
+            throw new ResourceAlreadyExistsException("Idempotency-Key already used for a different request");
+        }
+        return response.transaction();
+    }
+
+    private StoredResponse await(CompletableFuture<StoredResponse> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${transaction.idempotency.purge-interval:PT1H}")
+    public void purgeExpiredKeys() {
+        Integer deleted = transactionTemplate.execute(status ->
+                idempotencyKeyRepository.deleteCreatedBefore(LocalDateTime.now().minus(ttl)));
+        if (deleted != null && deleted > 0) {
+            System.out.println("Clés d'idempotence expirées supprimées: " + deleted);
+        }
+    }
+
+    static String fingerprint(TransactionCreationDTO dto) {
+        String request = dto.getStoreId() + "|"
+                + (dto.getAmount() == null ? "" : dto.getAmount().stripTrailingZeros().toPlainString()) + "|"
+                + (dto.getDescription() == null ? "" : dto.getDescription());
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(request.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private String toJson(TransactionDTO transaction) {
+        try {
+            return objectMapper.writeValueAsString(transaction);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize transaction " + transaction.getId(), e);
+        }
+    }
+
+    private TransactionDTO fromJson(String response) {
+        try {
+            return objectMapper.readValue(response, TransactionDTO.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot read stored idempotent response", e);
+        }
+    }
+
+    private void record(String result) {
+        meterRegistry.counter("transaction.idempotency", "result", result).increment();
+    }
+
+    private record StoredResponse(String fingerprint, TransactionDTO transaction, LocalDateTime createdAt) {
+    }
+
+    private static final class KeyAlreadyClaimedException extends RuntimeException {
+
+        KeyAlreadyClaimedException() {
+            super(null, null, false, false);
+        }
+    }
+}
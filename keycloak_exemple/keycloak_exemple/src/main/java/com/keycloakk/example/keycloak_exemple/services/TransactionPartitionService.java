@@ -0,0 +1,133 @@
+package com.keycloakk.example.keycloak_exemple.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Maintenance des partitions mensuelles de la table transaction (voir la migration V4): création des
+ * partitions des mois à venir et, si une rétention est configurée, détachement des mois expirés. Une
+ * partition détachée est renommée en transaction_archive_AAAA_MM et reste en base comme table d'archive.
+ * <p>
+ * Le mois courant est lu sur l'horloge de la base (date_trunc('month', localtimestamp)), comme dans V4:
+ * le fuseau de la JVM n'intervient pas. Chaque création ou archivage s'exécute dans sa propre transaction,
+ * et tout échec est propagé pour faire échouer le job plutôt que d'être seulement journalisé.
+ */
+@Service
+@RequiredArgsConstructor
+public class TransactionPartitionService {
+
+    private static final String PARTITION_PREFIX = "transaction_p";
+    private static final String ARCHIVE_PREFIX = "transaction_archive_";
+    private static final DateTimeFormatter MONTH_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${transaction.partitions.months-ahead:3}")
+    private int monthsAhead;
+
+    // 0: aucune partition n'est détachée
+    @Value("${transaction.partitions.retention-months:0}")
+    private int retentionMonths;
+
+    public void maintainPartitions() {
+        YearMonth currentMonth = YearMonth.parse(jdbcTemplate.queryForObject(
+                "select to_char(date_trunc('month', localtimestamp), 'YYYY-MM')", String.class));
+        Set<String> partitions = new HashSet<>(findPartitionNames());
+
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = currentMonth.plusMonths(i);
+            if (!partitions.contains(partitionName(month))) {
+                createPartition(month);
+            }
+        }
+
+        if (retentionMonths > 0) {
+            YearMonth oldestKept = currentMonth.minusMonths(retentionMonths);
+            for (String partition : partitions) {
+                YearMonth month = parseMonth(partition);
+                if (month != null && month.isBefore(oldestKept)) {
+                    archivePartition(partition, month);
+                }
+            }
+        }
+    }
+
+    private List<String> findPartitionNames() {
+        return jdbcTemplate.queryForList("select c.relname from pg_inherits i join pg_class c on c.oid = i.inhrelid"
+                + " where i.inhparent = 'transaction'::regclass", String.class);
+    }
+
+    /**
+     * Crée la partition d'un mois. Les lignes de ce mois déjà tombées dans la partition par défaut (insérées
+     * avant que la partition existe) empêcheraient sa création: elles sont retirées de la partition par défaut,
+     * la partition est créée, puis elles y sont réinsérées, le tout dans une seule transaction.
+     */
+    private void createPartition(YearMonth month) {
+        String partition = partitionName(month);
+        Timestamp from = Timestamp.valueOf(month.atDay(1).atStartOfDay());
+        Timestamp to = Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay());
+        try {
+            Integer moved = transactionTemplate.execute(status -> {
+                jdbcTemplate.execute("create temporary table transaction_default_moved (like transaction) on commit drop");
+                int rows = jdbcTemplate.update("with moved as (delete from transaction_default"
+                        + " where transaction_date >= ? and transaction_date < ? returning *)"
+                        + " insert into transaction_default_moved select * from moved", from, to);
+                jdbcTemplate.execute("create table " + partition + " partition of transaction"
+                        + " for values from ('" + from + "') to ('" + to + "')");
+                if (rows > 0) {
+                    jdbcTemplate.update("insert into transaction select * from transaction_default_moved");
+                }
+                return rows;
+            });
+            System.out.println("Partition créée: " + partition
+                    + (moved != null && moved > 0 ? " (" + moved + " ligne(s) déplacée(s) depuis la partition par défaut)" : ""));
+        } catch (DataAccessException e) {
+            throw new IllegalStateException("Impossible de créer la partition " + partition + ": "
+                    + e.getMostSpecificCause().getMessage(), e);
+        }
+    }
+
+    // Détachement et renommage dans la même transaction: jamais de partition détachée sous son nom d'origine
+    private void archivePartition(String partition, YearMonth month) {
+        String archive = ARCHIVE_PREFIX + month.format(MONTH_SUFFIX);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.execute("alter table transaction detach partition " + partition);
+                jdbcTemplate.execute("alter table " + partition + " rename to " + archive);
+            });
+            System.out.println("Partition détachée et archivée: " + partition + " -> " + archive);
+        } catch (DataAccessException e) {
+            throw new IllegalStateException("Impossible de détacher la partition " + partition + ": "
+                    + e.getMostSpecificCause().getMessage(), e);
+        }
+    }
+
+    private static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(MONTH_SUFFIX);
+    }
+
+    // Mois d'une partition mensuelle, null pour la partition par défaut ou tout autre nom
+    private static YearMonth parseMonth(String partition) {
+        if (!partition.startsWith(PARTITION_PREFIX)) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(partition.substring(PARTITION_PREFIX.length()), MONTH_SUFFIX);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -1,20 +1,42 @@
 package com.keycloakk.example.keycloak_exemple.services;
 
+import com.keycloakk.example.keycloak_exemple.dtos.SalesTotalDTO;
+import com.keycloakk.example.keycloak_exemple.dtos.StoreDailySalesDTO;
+import com.keycloakk.example.keycloak_exemple.dtos.StoreSalesSummaryDTO;
+import com.keycloakk.example.keycloak_exemple.dtos.TransactionAccessView;
 import com.keycloakk.example.keycloak_exemple.dtos.TransactionCreationDTO;
 import com.keycloakk.example.keycloak_exemple.dtos.TransactionDTO;
+import com.keycloakk.example.keycloak_exemple.dtos.TransactionPageDTO;
+import com.keycloakk.example.keycloak_exemple.dtos.TransactionStatusChange;
+import com.keycloakk.example.keycloak_exemple.dtos.TransactionStatusUpdateDTO;
+import com.keycloakk.example.keycloak_exemple.dtos.TransactionStatusUpdateResultDTO;
+import com.keycloakk.example.keycloak_exemple.dtos.UserIdentity;
+import com.keycloakk.example.keycloak_exemple.exception.InvalidRequestException;
+import com.keycloakk.example.keycloak_exemple.exception.InvalidStatusTransitionException;
 import com.keycloakk.example.keycloak_exemple.exception.ResourceNotFoundException;
 import com.keycloakk.example.keycloak_exemple.exception.UnauthorizedOperationException;
 import com.keycloakk.example.keycloak_exemple.model.*;
+import com.keycloakk.example.keycloak_exemple.repositories.StoreDailyStatsRepository;
 import com.keycloakk.example.keycloak_exemple.repositories.StoreRepository;
 import com.keycloakk.example.keycloak_exemple.repositories.TransactionRepository;
 import com.keycloakk.example.keycloak_exemple.repositories.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -23,19 +45,32 @@ public class TransactionService {
     private final TransactionRepository transactionRepository;
     private final UserRepository userRepository;
     private final StoreRepository storeRepository;
+    private final UserIdentityCache userIdentityCache;
+    private final StoreDailyStatsService storeDailyStatsService;
+    private final StoreDailyStatsRepository storeDailyStatsRepository;
+
+    // Foreign key names set by migration V6, reported in constraint violations
+    static final String FK_TRANSACTION_CUSTOMER = "fk_transaction_customer";
+    static final String FK_TRANSACTION_STORE = "fk_transaction_store";
+
+    // Ids per UPDATE statement of a bulk status change
+    private static final int STATUS_UPDATE_CHUNK_SIZE = 1000;
+
+    @Value("${transaction.page.max-size:500}")
+    private int maxPageSize;
+
+    @Value("${transaction.status.bulk-max-size:10000}")
+    private int maxStatusUpdateSize;
 
 @Transactional
 public TransactionDTO createTransaction(TransactionCreationDTO transactionCreationDTO, String customerId) {
-    // Use findByKeycloakId to fetch the user
-    User customer = userRepository.findByKeycloakId(customerId)
+    // The CUSTOMER role comes from the verified JWT (checked by the controller) and the internal id from
+    // the identity cache: customer and store are attached as references, without any SELECT
+    UserIdentity identity = userIdentityCache.findByKeycloakId(customerId)
             .orElseThrow(() -> new ResourceNotFoundException("Customer not found with keycloakId: " + customerId));
 
-    if (customer.getRole() != UserRole.CUSTOMER) {
-        throw new UnauthorizedOperationException("Only customers can create transactions");
-    }
-
-    Store store = storeRepository.findById(transactionCreationDTO.getStoreId())
-            .orElseThrow(() -> new ResourceNotFoundException("Store not found with id: " + transactionCreationDTO.getStoreId()));
+    User customer = userRepository.getReferenceById(identity.id());
+    Store store = storeRepository.getReferenceById(transactionCreationDTO.getStoreId());
 
     Transaction transaction = Transaction.createTransaction(
             transactionCreationDTO.getAmount(),
@@ -44,82 +79,178 @@ public TransactionDTO createTransaction(TransactionCreationDTO transactionCreati
             store
     );
 
-    Transaction savedTransaction = transactionRepository.save(transaction);
+    // Flushed here so that a foreign key violation (missing store, or a customer deleted since it was cached)
+    // is reported as a 404; any other integrity violation is not a missing resource and is rethrown
+    Transaction savedTransaction;
+    try {
+        savedTransaction = transactionRepository.saveAndFlush(transaction);
+    } catch (DataIntegrityViolationException e) {
+        String constraint = violatedConstraint(e);
+        if (FK_TRANSACTION_STORE.equalsIgnoreCase(constraint)) {
+            throw new ResourceNotFoundException("Store not found with id: " + transactionCreationDTO.getStoreId());
+        }
+        if (FK_TRANSACTION_CUSTOMER.equalsIgnoreCase(constraint)) {
+            userIdentityCache.invalidate(customerId);
+            throw new ResourceNotFoundException("Customer not found with keycloakId: " + customerId);
+        }
+        throw e;
+    }
+    storeDailyStatsService.recordCreated(List.of(savedTransaction));
     return mapToDTO(savedTransaction);
 }
 // Dans TransactionService
     @Transactional(readOnly = true)
-    public TransactionDTO getTransactionById(String id, String keycloakId, UserRole role) {
-        Transaction transaction = transactionRepository.findById(id)
+    public TransactionDTO getTransactionById(Long id, String keycloakId, UserRole role) {
+        // Une seule requête: colonnes du DTO, client et marchand propriétaires
+        TransactionAccessView transaction = transactionRepository.findAccessViewById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Transaction not found with id: " + id));
 
         // Récupérer l'utilisateur par son keycloakId
-        User user = userRepository.findByKeycloakId(keycloakId)
+        UserIdentity user = userIdentityCache.findByKeycloakId(keycloakId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with keycloakId: " + keycloakId));
 
         // Vérifier l'accès
-        if (role == UserRole.CUSTOMER && !transaction.getCustomer().getId().equals(user.getId())) {
+        if (role == UserRole.CUSTOMER && !user.id().equals(transaction.customerId())) {
             throw new UnauthorizedOperationException("You can only view your own transactions");
-        } else if (role == UserRole.MERCHANT && !transaction.getStore().getMerchant().getId().equals(user.getId())) {
+        } else if (role == UserRole.MERCHANT && !user.id().equals(transaction.merchantId())) {
             throw new UnauthorizedOperationException("You can only view transactions from your stores");
         }
 
-        return mapToDTO(transaction);
+        return transaction.toDTO();
     }
 
     @Transactional(readOnly = true)
-    public List<TransactionDTO> getTransactionsByCustomer(String keycloakId) {
-        User customer = userRepository.findByKeycloakId(keycloakId)
+    public TransactionPageDTO getTransactionsByCustomer(String keycloakId, String cursor, int limit) {
+        UserIdentity customer = userIdentityCache.findByKeycloakId(keycloakId)
                 .orElseThrow(() -> new ResourceNotFoundException("Customer not found with id: " + keycloakId));
 
-        return transactionRepository.findByCustomer(customer).stream()
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
+        TransactionCursor position = TransactionCursor.decode(cursor);
+        int pageSize = pageSize(limit);
+        return toPage(transactionRepository.findPageByCustomerId(customer.id(),
+                position.transactionDate(), position.id(), Limit.of(pageSize + 1)), pageSize);
     }
 
     @Transactional(readOnly = true)
-    public List<TransactionDTO> getTransactionsByStore(String storeId, String merchantId) {
-        Store store = storeRepository.findById(storeId)
-                .orElseThrow(() -> new ResourceNotFoundException("Store not found with id: " + storeId));
+    public TransactionPageDTO getTransactionsByStore(Long storeId, String merchantId, String cursor, int limit) {
+        checkStoreOwnership(storeId, merchantId);
 
-        // Verify that the merchant owns the store
-        if (!store.getMerchant().getKeycloakId().equals(merchantId)) {
-            throw new UnauthorizedOperationException("You can only view transactions from your own stores");
-        }
+        TransactionCursor position = TransactionCursor.decode(cursor);
+        int pageSize = pageSize(limit);
+        return toPage(transactionRepository.findPageByStoreId(storeId,
+                position.transactionDate(), position.id(), Limit.of(pageSize + 1)), pageSize);
+    }
 
-        return transactionRepository.findByStore(store).stream()
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public TransactionPageDTO getTransactionsByDateRange(LocalDateTime start, LocalDateTime end, Long storeId, String merchantId,
+                                                         String cursor, int limit) {
+        checkStoreOwnership(storeId, merchantId);
+
+        TransactionCursor position = TransactionCursor.decode(cursor);
+        int pageSize = pageSize(limit);
+        return toPage(transactionRepository.findPageByStoreIdAndDateRange(storeId, start, end,
+                position.transactionDate(), position.id(), Limit.of(pageSize + 1)), pageSize);
     }
 
+    // Answered from the daily rollup: cost grows with the number of days, not of transactions
     @Transactional(readOnly = true)
-    public List<TransactionDTO> getTransactionsByDateRange(LocalDateTime start, LocalDateTime end, String storeId, String merchantId) {
-        Store store = storeRepository.findById(storeId)
-                .orElseThrow(() -> new ResourceNotFoundException("Store not found with id: " + storeId));
+    public StoreSalesSummaryDTO getStoreSummary(Long storeId, LocalDate from, LocalDate to, String merchantId) {
+        if (from.isAfter(to)) {
+            throw new InvalidRequestException("from must not be after to");
+        }
+        checkStoreOwnership(storeId, merchantId);
 
-        // Verify that the merchant owns the store
-        if (!store.getMerchant().getKeycloakId().equals(merchantId)) {
+        List<StoreDailySalesDTO> days = storeDailyStatsRepository.findDailySales(storeId, from, to);
+        Map<TransactionStatus, SalesTotalDTO> totals = new EnumMap<>(TransactionStatus.class);
+        for (StoreDailySalesDTO day : days) {
+            totals.merge(day.getStatus(), new SalesTotalDTO(day.getStatus(), day.getCount(), day.getAmount()),
+                    (total, other) -> new SalesTotalDTO(total.getStatus(), total.getCount() + other.getCount(),
+                            total.getAmount().add(other.getAmount())));
+        }
+        return new StoreSalesSummaryDTO(storeId, from, to, new ArrayList<>(totals.values()), days);
+    }
+
+    // Verify that the merchant owns the store: owner id only, compared with the cached identity
+    private void checkStoreOwnership(Long storeId, String merchantId) {
+        Long ownerId = storeRepository.findMerchantIdById(storeId)
+                .orElseThrow(() -> new ResourceNotFoundException("Store not found with id: " + storeId));
+        UserIdentity merchant = userIdentityCache.findByKeycloakId(merchantId)
+                .orElseThrow(() -> new ResourceNotFoundException("Merchant not found with Keycloak ID: " + merchantId));
+        if (!ownerId.equals(merchant.id())) {
             throw new UnauthorizedOperationException("You can only view transactions from your own stores");
         }
+    }
 
-        return transactionRepository.findByStoreAndTransactionDateBetween(store, start, end).stream()
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
+    private int pageSize(int limit) {
+        if (limit < 1 || limit > maxPageSize) {
+            throw new InvalidRequestException("limit must be between 1 and " + maxPageSize);
+        }
+        return limit;
+    }
+
+    // One extra row is fetched to know whether a next page exists without a count query
+    private TransactionPageDTO toPage(List<TransactionDTO> rows, int pageSize) {
+        boolean hasNext = rows.size() > pageSize;
+        List<TransactionDTO> page = hasNext ? new ArrayList<>(rows.subList(0, pageSize)) : rows;
+        String nextCursor = null;
+        if (hasNext) {
+            TransactionDTO last = page.get(page.size() - 1);
+            nextCursor = new TransactionCursor(last.getTransactionDate(), last.getId()).encode();
+        }
+        return new TransactionPageDTO(page, nextCursor);
     }
 
+    // Conditional UPDATE: no read-modify-write, the status machine and store ownership are checked by the statement
     @Transactional
-    public TransactionDTO updateTransactionStatus(String id, TransactionStatus status, String merchantId) {
-        Transaction transaction = transactionRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Transaction not found with id: " + id));
+    public TransactionDTO updateTransactionStatus(Long id, TransactionStatus status, String merchantId) {
+        UserIdentity merchant = userIdentityCache.findByKeycloakId(merchantId)
+                .orElseThrow(() -> new ResourceNotFoundException("Merchant not found with Keycloak ID: " + merchantId));
+
+        List<TransactionDTO> updated = transitionStatus(List.of(id), status, merchant.id());
+        if (!updated.isEmpty()) {
+            return updated.get(0);
+        }
 
-        // Verify that the merchant owns the store associated with the transaction
-        if (!transaction.getStore().getMerchant().getKeycloakId().equals(merchantId)) {
+        // Nothing changed: one read to report why
+        TransactionAccessView transaction = transactionRepository.findAccessViewById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Transaction not found with id: " + id));
+        if (!merchant.id().equals(transaction.merchantId())) {
             throw new UnauthorizedOperationException("You can only update transactions from your own stores");
         }
+        throw new InvalidStatusTransitionException("Transaction " + id + " cannot go from " + transaction.status() + " to " + status);
+    }
+
+    // Settles many transactions at once; ids that cannot move to the status are reported, not rejected
+    @Transactional
+    public TransactionStatusUpdateResultDTO updateTransactionStatuses(TransactionStatusUpdateDTO request, String merchantId) {
+        List<Long> ids = request.getIds().stream().filter(Objects::nonNull).distinct().toList();
+        if (ids.size() > maxStatusUpdateSize) {
+            throw new InvalidRequestException("At most " + maxStatusUpdateSize + " transactions can be updated at once");
+        }
+        UserIdentity merchant = userIdentityCache.findByKeycloakId(merchantId)
+                .orElseThrow(() -> new ResourceNotFoundException("Merchant not found with Keycloak ID: " + merchantId));
+
+        Set<Long> updatedIds = new HashSet<>();
+        for (int from = 0; from < ids.size(); from += STATUS_UPDATE_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + STATUS_UPDATE_CHUNK_SIZE, ids.size()));
+            transitionStatus(chunk, request.getStatus(), merchant.id())
+                    .forEach(transaction -> updatedIds.add(transaction.getId()));
+        }
+        List<Long> notUpdatedIds = ids.stream().filter(id -> !updatedIds.contains(id)).toList();
+        return new TransactionStatusUpdateResultDTO(request.getStatus(), updatedIds.size(), notUpdatedIds);
+    }
 
-        transaction.setStatus(status);
-        Transaction updatedTransaction = transactionRepository.save(transaction);
-        return mapToDTO(updatedTransaction);
+    // One UPDATE per allowed predecessor status (a single one in the current machine), each keeping the daily stats in step
+    private List<TransactionDTO> transitionStatus(List<Long> ids, TransactionStatus status, Long merchantId) {
+        List<TransactionDTO> updated = new ArrayList<>();
+        for (TransactionStatus from : status.getPredecessors()) {
+            List<TransactionStatusChange> changes = transactionRepository.updateStatus(ids, from.name(), status.name(), merchantId)
+                    .stream()
+                    .map(TransactionStatusChange::fromRow)
+                    .toList();
+            storeDailyStatsService.recordStatusChanges(changes, from, status);
+            changes.forEach(change -> updated.add(change.toDTO(status)));
+        }
+        return updated;
     }
 
     private TransactionDTO mapToDTO(Transaction transaction) {
@@ -129,9 +260,20 @@ public TransactionDTO createTransaction(TransactionCreationDTO transactionCreati
                 transaction.getTransactionDate(),
                 transaction.getDescription(),
                 transaction.getStatus(),
-                String.valueOf(transaction.getCustomer().getId()), // Convert Long to String
+                // Batch-ingested point-of-sale transactions may have no customer
+                transaction.getCustomer() == null ? null : String.valueOf(transaction.getCustomer().getId()),
                 transaction.getStore().getId() // No conversion needed
         );
     }
+
+    // Name of the violated constraint, as extracted by Hibernate from the database error, or null
+    static String violatedConstraint(DataIntegrityViolationException e) {
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                return violation.getConstraintName();
+            }
+        }
+        return null;
+    }
 }
 
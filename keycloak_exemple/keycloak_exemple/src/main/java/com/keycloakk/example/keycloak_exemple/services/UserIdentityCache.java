@@ -0,0 +1,68 @@
+package com.keycloakk.example.keycloak_exemple.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.keycloakk.example.keycloak_exemple.dtos.UserIdentity;
+import com.keycloakk.example.keycloak_exemple.repositories.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Cache local keycloakId -> identité (id interne, nom d'utilisateur, rôle), borné en taille et en
+ * durée, pour éviter une requête en base à chaque appel d'API authentifié. Les utilisateurs inconnus
+ * ne sont pas mis en cache. La synchronisation Keycloak et UserService invalident les entrées modifiées.
+ */
+@Service
+public class UserIdentityCache {
+
+    private final UserRepository userRepository;
+    private final Cache<String, UserIdentity> identities;
+
+    public UserIdentityCache(UserRepository userRepository,
+                             MeterRegistry meterRegistry,
+                             @Value("${user.identity-cache.max-size:10000}") long maxSize,
+                             @Value("${user.identity-cache.ttl:PT5M}") Duration ttl) {
+        this.userRepository = userRepository;
+        this.identities = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, identities, "userIdentity");
+    }
+
+    public Optional<UserIdentity> findByKeycloakId(String keycloakId) {
+        return Optional.ofNullable(identities.get(keycloakId,
+                id -> userRepository.findIdentityByKeycloakId(id).orElse(null)));
+    }
+
+    public void invalidate(String keycloakId) {
+        invalidateAll(List.of(keycloakId));
+    }
+
+    // Invalidation immédiate, puis de nouveau au commit pour écarter une lecture concurrente de l'ancienne valeur
+    public void invalidateAll(Collection<String> keycloakIds) {
+        if (keycloakIds.isEmpty()) {
+            return;
+        }
+        List<String> ids = List.copyOf(keycloakIds);
+        identities.invalidateAll(ids);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    identities.invalidateAll(ids);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.keycloakk.example.keycloak_exemple.services;
+
+import com.keycloakk.example.keycloak_exemple.model.UserRole;
+import com.keycloakk.example.keycloak_exemple.repositories.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Corrige, hors du thread de la requête, un écart entre le rôle Keycloak d'un utilisateur et
+ * celui enregistré dans app_user. Les requêtes s'appuient sur le claim roles du JWT vérifié;
+ * cette tâche ne fait qu'aligner la base, sans retenir de connexion pendant l'appel à Keycloak.
+ */
+@Service
+@RequiredArgsConstructor
+public class UserRoleReconciler {
+
+    private final KeycloakService keycloakService;
+    private final UserRepository userRepository;
+    private final UserIdentityCache userIdentityCache;
+    private final TransactionTemplate transactionTemplate;
+
+    @Async
+    public void reconcile(String keycloakId) {
+        UserRole keycloakRole;
+        try {
+            keycloakRole = keycloakService.determineRoleFromKeycloak(keycloakId);
+        } catch (RuntimeException e) {
+            // La synchronisation périodique corrigera l'écart
+            System.out.println("Réconciliation du rôle impossible pour " + keycloakId + ": " + e.getMessage());
+            return;
+        }
+
+        transactionTemplate.executeWithoutResult(status ->
+                userRepository.findByKeycloakId(keycloakId)
+                        .filter(user -> user.getRole() != keycloakRole)
+                        .ifPresent(user -> {
+                            System.out.println("Rôle de " + user.getUsername() + " aligné sur Keycloak: "
+                                    + user.getRole() + " -> " + keycloakRole);
+                            user.setRole(keycloakRole);
+                            userRepository.save(user);
+                            userIdentityCache.invalidate(keycloakId);
+                        }));
+    }
+}
@@ -12,6 +12,7 @@ import com.keycloakk.example.keycloak_exemple.repositories.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -22,9 +23,14 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final KeycloakService keycloakService;
+    private final KeycloakOutboxService keycloakOutboxService;
+    private final TransactionTemplate transactionTemplate;
+    private final UserIdentityCache userIdentityCache;
+    private final StoreDailyStatsService storeDailyStatsService;
 
 //create user in keycloak and database
-   @Transactional
+   // Not @Transactional: the Keycloak create call (which returns the id) runs without holding a DB connection,
+   // the role assignment is then queued in the outbox within the insert transaction.
    public UserDTO createUser(UserCreationDTO userCreationDTO) {
       // Check if username or email already exists
       if (userRepository.existsByUsername(userCreationDTO.getUsername())) {
@@ -46,11 +52,29 @@ public class UserService {
       String keycloakId = keycloakService.createKeycloakUser(user, userCreationDTO.getPassword());
       user.setKeycloakId(keycloakId); // Set Keycloak ID
       // Save user in database
-      User savedUser = userRepository.save(user);
+      User savedUser;
+      try {
+          savedUser = transactionTemplate.execute(status -> {
+              User saved = userRepository.save(user);
+              keycloakOutboxService.enqueueUpdate(saved);
+              return saved;
+          });
+      } catch (RuntimeException e) {
+          // Don't leave a Keycloak user behind without its database row; a failed compensation must not
+          // hide the database error the client needs to see
+          try {
+              keycloakService.deleteKeycloakUser(keycloakId);
+          } catch (RuntimeException compensation) {
+              e.addSuppressed(compensation);
+              System.out.println("Impossible de supprimer l'utilisateur Keycloak " + keycloakId
+                      + " après l'échec de l'enregistrement en base: " + compensation.getMessage());
+          }
+          throw e;
+      }
       return mapToDTO(savedUser);
   }
     @Transactional(readOnly = true)
-    public UserDTO getUserById(String id) {
+    public UserDTO getUserById(Long id) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
         return mapToDTO(user);
@@ -78,7 +102,7 @@ public class UserService {
     }
 
     @Transactional
-    public UserDTO updateUser(String id, UserDTO userDTO) {
+    public UserDTO updateUser(Long id, UserDTO userDTO) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
 
@@ -87,24 +111,27 @@ public class UserService {
         user.setEmail(userDTO.getEmail());
         user.setRole(userDTO.getRole());
 
-        // Update user in Keycloak
-        keycloakService.updateKeycloakUser(user);
-
         // Save updated user in database
         User updatedUser = userRepository.save(user);
+        userIdentityCache.invalidate(updatedUser.getKeycloakId());
+
+        // Update user in Keycloak (asynchronously, once this transaction commits)
+        keycloakOutboxService.enqueueUpdate(updatedUser);
         return mapToDTO(updatedUser);
     }
 
     @Transactional
-    public void deleteUser(String id) {
+    public void deleteUser(Long id) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
 
-        // Delete user from Keycloak
-        keycloakService.deleteKeycloakUser(user.getUsername());
-
-        // Delete user from database
+        // Delete user from database (its transactions as a customer leave the stores' daily stats first)
+        storeDailyStatsService.recordCustomersDeleted(List.of(user.getKeycloakId()));
         userRepository.delete(user);
+        userIdentityCache.invalidate(user.getKeycloakId());
+
+        // Delete user from Keycloak (asynchronously, once this transaction commits)
+        keycloakOutboxService.enqueueDelete(user);
     }
 
     private UserDTO mapToDTO(User user) {
@@ -0,0 +1,22 @@
+package com.keycloakk.example.keycloak_exemple.services;
+
+import lombok.Data;
+
+/**
+ * Compteurs d'un cycle de synchronisation des utilisateurs.
+ */
+@Data
+public class UserSyncReport {
+
+    private long scanned;
+    private long skipped;
+    private long updated;
+    private long created;
+    private long deleted;
+
+    @Override
+    public String toString() {
+        return "parcourus=" + scanned + ", inchangés=" + skipped + ", mis à jour=" + updated
+                + ", créés=" + created + ", supprimés=" + deleted;
+    }
+}
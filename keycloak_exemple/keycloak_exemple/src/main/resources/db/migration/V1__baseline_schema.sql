@@ -0,0 +1,100 @@
+-- Schéma de base, jusque-là créé par spring.jpa.hibernate.ddl-auto=update. Tout est en IF NOT EXISTS:
+-- sur une base existante (baseline-on-migrate), seuls les objets manquants, dont les index, sont créés.
+-- CREATE TABLE IF NOT EXISTS ne touche pas une table existante: les colonnes ajoutées depuis aux tables
+-- de cette base (app_user, store, transaction) le sont aussi par ALTER TABLE ... ADD COLUMN IF NOT EXISTS.
+
+CREATE SEQUENCE IF NOT EXISTS app_user_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS transaction_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS keycloak_outbox_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS app_user
+(
+  id               BIGINT       NOT NULL PRIMARY KEY,
+  username         VARCHAR(255) NOT NULL,
+  first_name       VARCHAR(255) NOT NULL,
+  last_name        VARCHAR(255) NOT NULL,
+  email            VARCHAR(255) NOT NULL,
+  role             VARCHAR(255) NOT NULL,
+  keycloak_id      VARCHAR(255) NOT NULL,
+  sync_fingerprint BIGINT       NULL,
+  CONSTRAINT uk_app_user_username UNIQUE (username),
+  CONSTRAINT uk_app_user_email UNIQUE (email),
+  CONSTRAINT uk_app_user_keycloak_id UNIQUE (keycloak_id)
+);
+ALTER TABLE app_user ADD COLUMN IF NOT EXISTS sync_fingerprint BIGINT;
+
+CREATE TABLE IF NOT EXISTS store
+(
+  id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  name        VARCHAR(255) NOT NULL,
+  description VARCHAR(255) NULL,
+  address     VARCHAR(255) NULL,
+  merchant_id BIGINT       NULL REFERENCES app_user (id)
+);
+
+CREATE TABLE IF NOT EXISTS transaction
+(
+  id               BIGINT         NOT NULL PRIMARY KEY,
+  amount           NUMERIC(38, 2) NOT NULL,
+  transaction_date TIMESTAMP(6)   NOT NULL,
+  description      VARCHAR(255)   NULL,
+  status           VARCHAR(255)   NOT NULL,
+  customer_id      BIGINT         NULL REFERENCES app_user (id),
+  store_id         BIGINT         NULL REFERENCES store (id)
+);
+
+CREATE TABLE IF NOT EXISTS keycloak_outbox
+(
+  id              BIGINT        NOT NULL PRIMARY KEY,
+  operation       VARCHAR(255)  NOT NULL,
+  keycloak_id     VARCHAR(255)  NOT NULL,
+  username        VARCHAR(255)  NULL,
+  status          VARCHAR(255)  NOT NULL,
+  attempts        INTEGER       NOT NULL,
+  created_at      TIMESTAMP(6)  NOT NULL,
+  next_attempt_at TIMESTAMP(6)  NOT NULL,
+  locked_until    TIMESTAMP(6)  NULL,
+  processed_at    TIMESTAMP(6)  NULL,
+  last_error      VARCHAR(1000) NULL
+);
+
+CREATE TABLE IF NOT EXISTS sync_cursor
+(
+  name              VARCHAR(255) NOT NULL PRIMARY KEY,
+  last_event_time   BIGINT       NULL,
+  last_full_sync_at TIMESTAMP(6) NULL
+);
+
+-- Transactions d'un client / d'un magasin, par date (pages par curseur, recherches par période, exports)
+CREATE INDEX IF NOT EXISTS idx_transaction_customer_date
+  ON transaction (customer_id, transaction_date DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_transaction_store_date
+  ON transaction (store_id, transaction_date DESC, id DESC);
+
+-- Recherche par statut: index partiel, les transactions terminées (COMPLETED) étant de loin les plus nombreuses
+CREATE INDEX IF NOT EXISTS idx_transaction_status_open
+  ON transaction (status, transaction_date)
+  WHERE status <> 'COMPLETED';
+
+-- Magasins d'un marchand, utilisateurs par rôle
+CREATE INDEX IF NOT EXISTS idx_store_merchant ON store (merchant_id);
+CREATE INDEX IF NOT EXISTS idx_app_user_role ON app_user (role);
+
+-- Outbox: opérations à traiter (lockNextBatch) et utilisateurs ayant une opération en attente
+CREATE INDEX IF NOT EXISTS idx_keycloak_outbox_open
+  ON keycloak_outbox (id)
+  WHERE status IN ('PENDING', 'PROCESSING');
+CREATE INDEX IF NOT EXISTS idx_keycloak_outbox_keycloak_id_open
+  ON keycloak_outbox (keycloak_id)
+  WHERE status IN ('PENDING', 'PROCESSING');
+
+-- Séquences alignées sur les données existantes (base créée par ddl-auto, dont les identifiants ne venaient pas
+-- forcément de ces séquences). Hibernate (optimiseur pooled, allocationSize = 50) attribue le bloc
+-- [nextval - 49, nextval]: la prochaine valeur est donc fixée à MAX(id) + 50 pour que le premier bloc commence
+-- après MAX(id). Une séquence déjà en avance n'est jamais reculée (blocs éventuellement détenus par une instance).
+SELECT setval('app_user_seq', COALESCE((SELECT MAX(id) FROM app_user), 0) + 50, false)
+WHERE (SELECT last_value FROM app_user_seq) < COALESCE((SELECT MAX(id) FROM app_user), 0) + 50;
+SELECT setval('transaction_seq', COALESCE((SELECT MAX(id) FROM transaction), 0) + 50, false)
+WHERE (SELECT last_value FROM transaction_seq) < COALESCE((SELECT MAX(id) FROM transaction), 0) + 50;
+SELECT setval('keycloak_outbox_seq', COALESCE((SELECT MAX(id) FROM keycloak_outbox), 0) + 50, false)
+WHERE (SELECT last_value FROM keycloak_outbox_seq) < COALESCE((SELECT MAX(id) FROM keycloak_outbox), 0) + 50;
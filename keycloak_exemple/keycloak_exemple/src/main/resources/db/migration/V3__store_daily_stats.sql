@@ -0,0 +1,21 @@
+-- Agrégats journaliers des ventes par boutique et par statut, tenus à jour à chaque écriture de transaction.
+-- Chaque (boutique, jour, statut) est réparti sur plusieurs "slots" (id de transaction modulo le nombre de slots):
+-- les écritures concurrentes d'une boutique très active ne se bloquent pas toutes sur la même ligne.
+CREATE TABLE IF NOT EXISTS store_daily_stats
+(
+  store_id   BIGINT         NOT NULL REFERENCES store (id) ON DELETE CASCADE,
+  day        DATE           NOT NULL,
+  status     VARCHAR(255)   NOT NULL,
+  slot       INTEGER        NOT NULL,
+  tx_count   BIGINT         NOT NULL,
+  amount_sum NUMERIC(38, 2) NOT NULL,
+  PRIMARY KEY (store_id, day, status, slot)
+);
+
+-- Reprise de l'existant, dans le slot 0
+INSERT INTO store_daily_stats (store_id, day, status, slot, tx_count, amount_sum)
+SELECT store_id, CAST(transaction_date AS DATE), status, 0, COUNT(*), SUM(amount)
+FROM transaction
+WHERE store_id IS NOT NULL
+GROUP BY store_id, CAST(transaction_date AS DATE), status
+ON CONFLICT (store_id, day, status, slot) DO NOTHING;
@@ -0,0 +1,57 @@
+-- Table transaction partitionnée par mois sur transaction_date: les recherches par période ne lisent que les
+-- partitions concernées (élagage), et les mois anciens peuvent être détachés sans DELETE massif.
+-- Les partitions à venir sont créées par TransactionPartitionMaintenanceJob.
+
+ALTER TABLE transaction RENAME TO transaction_unpartitioned;
+DROP INDEX IF EXISTS idx_transaction_customer_date;
+DROP INDEX IF EXISTS idx_transaction_store_date;
+DROP INDEX IF EXISTS idx_transaction_status_open;
+
+-- La clé primaire d'une table partitionnée doit contenir la clé de partitionnement
+CREATE TABLE transaction
+(
+  id               BIGINT         NOT NULL,
+  amount           NUMERIC(38, 2) NOT NULL,
+  transaction_date TIMESTAMP(6)   NOT NULL,
+  description      VARCHAR(255)   NULL,
+  status           VARCHAR(255)   NOT NULL,
+  customer_id      BIGINT         NULL REFERENCES app_user (id),
+  store_id         BIGINT         NULL REFERENCES store (id),
+  CONSTRAINT pk_transaction PRIMARY KEY (id, transaction_date)
+) PARTITION BY RANGE (transaction_date);
+
+-- Lignes hors des partitions mensuelles (dates antérieures aux partitions conservées ou trop lointaines)
+CREATE TABLE transaction_default PARTITION OF transaction DEFAULT;
+
+-- Une partition par mois, du mois de la plus ancienne transaction jusqu'à trois mois après le mois courant
+DO $$
+DECLARE
+  partition_month DATE;
+  last_month      DATE := date_trunc('month', now()) + INTERVAL '3 months';
+BEGIN
+  SELECT COALESCE(date_trunc('month', MIN(transaction_date)), date_trunc('month', now()))
+  INTO partition_month
+  FROM transaction_unpartitioned;
+
+  WHILE partition_month <= last_month LOOP
+    EXECUTE format('CREATE TABLE %I PARTITION OF transaction FOR VALUES FROM (%L) TO (%L)',
+                   'transaction_p' || to_char(partition_month, 'YYYY_MM'),
+                   partition_month::TIMESTAMP, (partition_month + INTERVAL '1 month')::TIMESTAMP);
+    partition_month := partition_month + INTERVAL '1 month';
+  END LOOP;
+END $$;
+
+INSERT INTO transaction (id, amount, transaction_date, description, status, customer_id, store_id)
+SELECT id, amount, transaction_date, description, status, customer_id, store_id
+FROM transaction_unpartitioned;
+
+DROP TABLE transaction_unpartitioned;
+
+-- Index partitionnés: créés sur chaque partition, y compris celles ajoutées ensuite
+CREATE INDEX idx_transaction_customer_date
+  ON transaction (customer_id, transaction_date DESC, id DESC);
+CREATE INDEX idx_transaction_store_date
+  ON transaction (store_id, transaction_date DESC, id DESC);
+CREATE INDEX idx_transaction_status_open
+  ON transaction (status, transaction_date)
+  WHERE status <> 'COMPLETED';
@@ -0,0 +1,16 @@
+-- Clés d'idempotence de POST /api/transactions, propres à chaque client: la réponse d'origine est rejouée
+-- pour toute nouvelle tentative portant la même clé. L'unicité est garantie par la clé primaire, y compris
+-- entre instances. Les clés expirées sont purgées par TransactionIdempotencyService.
+CREATE TABLE IF NOT EXISTS transaction_idempotency_key
+(
+  customer_keycloak_id VARCHAR(255) NOT NULL,
+  idempotency_key      VARCHAR(255) NOT NULL,
+  request_fingerprint  VARCHAR(64)  NOT NULL,
+  transaction_id       BIGINT       NULL,
+  response             TEXT         NULL,
+  created_at           TIMESTAMP(6) NOT NULL,
+  PRIMARY KEY (customer_keycloak_id, idempotency_key)
+);
+
+CREATE INDEX IF NOT EXISTS idx_transaction_idempotency_key_created
+  ON transaction_idempotency_key (created_at);
@@ -0,0 +1,22 @@
+-- Clés étrangères de transaction nommées explicitement: leur nom, remonté dans les violations de contrainte,
+-- permet à TransactionService de distinguer un magasin inexistant d'un client supprimé. Les noms générés par
+-- PostgreSQL pour les REFERENCES en ligne de V1 / V4 varient (suffixes _fkey, _fkey1, ...): elles sont
+-- recréées sur la table partitionnée, ce qui les recrée aussi sur chaque partition avec le même nom.
+DO $$
+DECLARE
+  foreign_key RECORD;
+BEGIN
+  FOR foreign_key IN
+    SELECT conname
+    FROM pg_constraint
+    WHERE conrelid = 'transaction'::regclass
+      AND contype = 'f'
+  LOOP
+    EXECUTE format('ALTER TABLE transaction DROP CONSTRAINT %I', foreign_key.conname);
+  END LOOP;
+END $$;
+
+ALTER TABLE transaction
+  ADD CONSTRAINT fk_transaction_customer FOREIGN KEY (customer_id) REFERENCES app_user (id);
+ALTER TABLE transaction
+  ADD CONSTRAINT fk_transaction_store FOREIGN KEY (store_id) REFERENCES store (id);
@@ -0,0 +1,124 @@
+package com.keycloakk.example.keycloak_exemple;
+
+import com.keycloakk.example.keycloak_exemple.model.KeycloakOutboxEvent;
+import com.keycloakk.example.keycloak_exemple.model.Store;
+import com.keycloakk.example.keycloak_exemple.model.StoreDailyStats;
+import com.keycloakk.example.keycloak_exemple.model.SyncCursor;
+import com.keycloakk.example.keycloak_exemple.model.Transaction;
+import com.keycloakk.example.keycloak_exemple.model.TransactionIdempotencyKey;
+import com.keycloakk.example.keycloak_exemple.model.User;
+import org.flywaydb.core.Flyway;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.cfg.JdbcSettings;
+import org.hibernate.cfg.MappingSettings;
+import org.hibernate.cfg.SchemaToolingSettings;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Migrations Flyway appliquées, comme en production (baseline-on-migrate, version 0), à une base créée
+ * auparavant par spring.jpa.hibernate.ddl-auto=update à partir des entités d'origine et contenant déjà
+ * des données.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class SchemaUpgradeTests {
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void upgradeExistingDatabase() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+
+        // DDL générée par Hibernate 6 (ddl-auto=update) pour User, Store et Transaction avant les migrations
+        jdbcTemplate.execute("""
+                create table app_user (id bigint generated by default as identity, email varchar(255) not null unique,
+                  first_name varchar(255) not null, keycloak_id varchar(255) not null unique, last_name varchar(255) not null,
+                  role varchar(255) not null check (role in ('ADMIN','CUSTOMER','MERCHANT')),
+                  username varchar(255) not null unique, primary key (id));
+                create table store (id bigint generated by default as identity, address varchar(255), description varchar(255),
+                  name varchar(255) not null, merchant_id bigint, primary key (id));
+                create table transaction (id bigint generated by default as identity, amount numeric(38,2) not null,
+                  description varchar(255), status varchar(255) not null check (status in ('PENDING','COMPLETED','FAILED','REFUNDED')),
+                  transaction_date timestamp(6) not null, customer_id bigint, store_id bigint, primary key (id));
+                alter table if exists store add constraint FKm8cbrk7bfn0dtdlo0gmnbn9xj foreign key (merchant_id) references app_user;
+                alter table if exists transaction add constraint FKlvt4bt7ucl9ex4n5ofybn0ae0 foreign key (customer_id) references app_user;
+                alter table if exists transaction add constraint FKgdh1fb4rbkvdl9dr2ncxa5lb9 foreign key (store_id) references store;
+                """);
+        jdbcTemplate.execute("""
+                insert into app_user (email, first_name, keycloak_id, last_name, role, username) values
+                  ('jdoe@example.com', 'John', '6f1c2c1e-8f43-4a4b-9d6a-1d2b3c4d5e6f', 'Doe', 'CUSTOMER', 'jdoe'),
+                  ('shop@example.com', 'Ann', '0b7e4c1a-2d3f-4e5a-8b9c-0d1e2f3a4b5c', 'Shop', 'MERCHANT', 'shop');
+                insert into store (name, merchant_id) values ('Corner shop', 2);
+                insert into transaction (amount, description, status, transaction_date, customer_id, store_id) values
+                  (19.90, 'Lunch', 'COMPLETED', now() - interval '14 months', 1, 1),
+                  (5.00, 'Coffee', 'PENDING', now(), 1, 1);
+                """);
+
+        Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration")
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                .load()
+                .migrate();
+    }
+
+    @Test
+    void addsColumnsMissingFromExistingTables() {
+        assertThat(jdbcTemplate.queryForList("select column_name from information_schema.columns"
+                + " where table_name = 'app_user'", String.class)).contains("sync_fingerprint");
+    }
+
+    // Même contrôle qu'au démarrage de l'application (spring.jpa.hibernate.ddl-auto=validate)
+    @Test
+    void entitiesValidateAgainstTheUpgradedSchema() {
+        Configuration configuration = new Configuration()
+                .setProperty(JdbcSettings.JAKARTA_JDBC_URL, POSTGRES.getJdbcUrl())
+                .setProperty(JdbcSettings.JAKARTA_JDBC_USER, POSTGRES.getUsername())
+                .setProperty(JdbcSettings.JAKARTA_JDBC_PASSWORD, POSTGRES.getPassword())
+                .setProperty(MappingSettings.PHYSICAL_NAMING_STRATEGY, CamelCaseToUnderscoresNamingStrategy.class.getName())
+                .setProperty(MappingSettings.IMPLICIT_NAMING_STRATEGY, SpringImplicitNamingStrategy.class.getName())
+                .setProperty(SchemaToolingSettings.HBM2DDL_AUTO, "validate");
+        for (Class<?> entity : new Class<?>[]{User.class, Store.class, Transaction.class, KeycloakOutboxEvent.class,
+                StoreDailyStats.class, SyncCursor.class, TransactionIdempotencyKey.class}) {
+            configuration.addAnnotatedClass(entity);
+        }
+        try (SessionFactory sessionFactory = configuration.buildSessionFactory()) {
+            assertThat(sessionFactory.isOpen()).isTrue();
+        }
+    }
+
+    @Test
+    void keepsExistingRowsInThePartitionedTable() {
+        assertThat(jdbcTemplate.queryForObject("select count(*) from transaction", Long.class)).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("select count(*) from pg_inherits i join pg_class p on p.oid = i.inhparent"
+                + " where p.relname = 'transaction'", Long.class)).isGreaterThan(14);
+    }
+
+    @Test
+    void namesTheTransactionForeignKeys() {
+        assertThat(jdbcTemplate.queryForList("select conname from pg_constraint where conrelid = 'transaction'::regclass"
+                + " and contype = 'f'", String.class)).containsExactlyInAnyOrder("fk_transaction_customer", "fk_transaction_store");
+    }
+
+    @Test
+    void startsSequencesAfterExistingIds() {
+        // Bloc attribué par Hibernate (allocationSize = 50): [nextval - 49, nextval]
+        assertThat(jdbcTemplate.queryForObject("select nextval('app_user_seq')", Long.class) - 49).isGreaterThan(2);
+        assertThat(jdbcTemplate.queryForObject("select nextval('transaction_seq')", Long.class) - 49).isGreaterThan(2);
+    }
+}
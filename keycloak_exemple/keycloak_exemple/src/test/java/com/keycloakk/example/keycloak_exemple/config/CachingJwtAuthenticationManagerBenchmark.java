@@ -0,0 +1,91 @@
+package com.keycloakk.example.keycloak_exemple.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Benchmark JMH du chemin décodage + conversion d'un jeton déjà présenté, avec et sans cache des jetons
+ * vérifiés. Hors de la suite de tests par défaut (le nom ne se termine pas par Tests), à lancer avec:
+ * {@code mvn test -Dtest=CachingJwtAuthenticationManagerBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CachingJwtAuthenticationManagerBenchmark {
+
+    @Param({"5", "60"})
+    public int roles;
+
+    private CachingJwtAuthenticationManager uncached;
+    private CachingJwtAuthenticationManager cached;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        SignedTestTokens tokens = new SignedTestTokens();
+        JwtDecoder decoder = tokens.decoder();
+        token = tokens.token(roles, 0);
+        uncached = manager(decoder, false);
+        cached = manager(decoder, true);
+        cached.authenticate(new BearerTokenAuthenticationToken(token));
+    }
+
+    @Benchmark
+    public Authentication uncached() {
+        return uncached.authenticate(new BearerTokenAuthenticationToken(token));
+    }
+
+    @Benchmark
+    public Authentication cached() {
+        return cached.authenticate(new BearerTokenAuthenticationToken(token));
+    }
+
+    private static CachingJwtAuthenticationManager manager(JwtDecoder decoder, boolean enabled) {
+        return new CachingJwtAuthenticationManager(decoder, new SecurityConfig().jwtAuthenticationConverter(), enabled,
+                64L * 1024 * 1024, Duration.ofMinutes(5), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void cachedPathIsFasterThanFullVerification() throws RunnerException {
+        Collection<RunResult> results = new Runner(new OptionsBuilder()
+                .include(CachingJwtAuthenticationManagerBenchmark.class.getName())
+                .build()).run();
+
+        // Temps moyen par appel (µs), par benchmark et nombre de rôles
+        Map<String, Double> scores = results.stream().collect(Collectors.toMap(
+                result -> result.getParams().getBenchmark().replaceAll(".*\\.", "") + "/" + result.getParams().getParam("roles"),
+                result -> result.getPrimaryResult().getScore()));
+        for (String roleCount : new String[]{"5", "60"}) {
+            assertThat(scores.get("cached/" + roleCount)).isLessThan(scores.get("uncached/" + roleCount));
+        }
+    }
+}
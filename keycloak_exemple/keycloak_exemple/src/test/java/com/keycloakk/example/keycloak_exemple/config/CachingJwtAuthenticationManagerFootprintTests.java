@@ -0,0 +1,40 @@
+package com.keycloakk.example.keycloak_exemple.config;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.openjdk.jol.info.GraphLayout;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Taille retenue d'une entrée du cache de jetons, mesurée avec JOL, comparée au poids utilisé par le
+ * cache: le poids doit majorer la mesure sans la dépasser de plus de 15 %.
+ */
+class CachingJwtAuthenticationManagerFootprintTests {
+
+    // Noeud Caffeine (56 octets mesurés) + entrée et case de la table de hachage sous-jacente
+    private static final long CACHE_NODE_BYTES = 128;
+
+    private static final SignedTestTokens TOKENS = new SignedTestTokens();
+    private static final JwtDecoder DECODER = TOKENS.decoder();
+
+    @ParameterizedTest
+    @CsvSource({"1, 0", "1, 2000", "5, 500", "20, 0", "20, 2000", "60, 0", "60, 2000"})
+    void weightBoundsTheMeasuredRetainedSize(int roles, int extraClaimLength) {
+        String token = TOKENS.token(roles, extraClaimLength);
+        JwtAuthenticationToken authentication = (JwtAuthenticationToken)
+                new SecurityConfig().jwtAuthenticationConverter().convert(DECODER.decode(token));
+        CachingJwtAuthenticationManager.VerifiedJwt verified = CachingJwtAuthenticationManager.VerifiedJwt.of(authentication);
+        String key = CachingJwtAuthenticationManager.sha256(token);
+
+        long measured = GraphLayout.parseInstance(key, verified).totalSize() + CACHE_NODE_BYTES;
+        int weight = CachingJwtAuthenticationManager.weigh(verified);
+
+        System.out.println(roles + " rôle(s), jeton de " + token.length() + " caractères: " + measured
+                + " octets mesurés, poids " + weight);
+        assertThat(verified.authorities()).hasSize(roles);
+        assertThat((long) weight).isGreaterThanOrEqualTo(measured).isLessThanOrEqualTo(measured * 115 / 100);
+    }
+}
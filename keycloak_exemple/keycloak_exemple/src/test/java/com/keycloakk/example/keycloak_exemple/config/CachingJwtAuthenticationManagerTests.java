@@ -0,0 +1,118 @@
+package com.keycloakk.example.keycloak_exemple.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.server.resource.InvalidBearerTokenException;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CachingJwtAuthenticationManagerTests {
+
+    private static final String TOKEN = "header.payload.signature";
+
+    private final JwtDecoder jwtDecoder = mock(JwtDecoder.class);
+
+    @Test
+    void reusesTheVerifiedJwtButBuildsANewAuthenticationPerRequest() {
+        when(jwtDecoder.decode(TOKEN)).thenReturn(jwt(TOKEN, Instant.now().plusSeconds(300)));
+        CachingJwtAuthenticationManager manager = manager(64 * 1024, Duration.ofMinutes(5));
+
+        Authentication first = manager.authenticate(bearer(TOKEN, "request-1"));
+        Authentication second = manager.authenticate(bearer(TOKEN, "request-2"));
+
+        verify(jwtDecoder, times(1)).decode(TOKEN);
+        assertThat(second).isNotSameAs(first).isInstanceOf(JwtAuthenticationToken.class);
+        assertThat(first.getDetails()).isEqualTo("request-1");
+        assertThat(second.getDetails()).isEqualTo("request-2");
+        assertThat(second.getName()).isEqualTo(first.getName());
+        assertThat(second.getAuthorities()).isEqualTo(first.getAuthorities());
+        assertThat(((JwtAuthenticationToken) second).getToken()).isSameAs(((JwtAuthenticationToken) first).getToken());
+    }
+
+    @Test
+    void doesNotCacheTokensAlreadyExpired() {
+        when(jwtDecoder.decode(TOKEN)).thenReturn(jwt(TOKEN, Instant.now().minusSeconds(1)));
+        CachingJwtAuthenticationManager manager = manager(64 * 1024, Duration.ofMinutes(5));
+
+        manager.authenticate(bearer(TOKEN, null));
+        manager.authenticate(bearer(TOKEN, null));
+
+        verify(jwtDecoder, times(2)).decode(TOKEN);
+        assertThat(manager.cachedTokenCount()).isZero();
+    }
+
+    @Test
+    void expiresEntriesAfterTheMaximumTtl() throws InterruptedException {
+        when(jwtDecoder.decode(TOKEN)).thenReturn(jwt(TOKEN, Instant.now().plusSeconds(300)));
+        CachingJwtAuthenticationManager manager = manager(64 * 1024, Duration.ofMillis(50));
+
+        manager.authenticate(bearer(TOKEN, null));
+        Thread.sleep(150);
+        manager.authenticate(bearer(TOKEN, null));
+
+        verify(jwtDecoder, times(2)).decode(TOKEN);
+    }
+
+    @Test
+    void evictsEntriesBeyondTheWeightLimit() {
+        when(jwtDecoder.decode(anyString())).thenAnswer(invocation -> jwt(invocation.getArgument(0), Instant.now().plusSeconds(300)));
+        // Une entrée (une autorité SCOPE_profile) pèse 2 octets par caractère + 160 par autorité + 3 Ko: la limite n'en admet qu'une
+        long oneEntry = TOKEN.length() * 2L + 160 + 3 * 1024;
+        CachingJwtAuthenticationManager manager = manager(oneEntry + oneEntry / 2, Duration.ofMinutes(5));
+
+        manager.authenticate(bearer("header.payload.signatur1", null));
+        manager.authenticate(bearer("header.payload.signatur2", null));
+
+        assertThat(manager.cachedTokenCount()).isEqualTo(1);
+    }
+
+    @Test
+    void neverCachesFailures() {
+        when(jwtDecoder.decode(TOKEN)).thenThrow(new BadJwtException("bad signature"));
+        CachingJwtAuthenticationManager manager = manager(64 * 1024, Duration.ofMinutes(5));
+
+        assertThatThrownBy(() -> manager.authenticate(bearer(TOKEN, null))).isInstanceOf(InvalidBearerTokenException.class);
+        assertThatThrownBy(() -> manager.authenticate(bearer(TOKEN, null))).isInstanceOf(InvalidBearerTokenException.class);
+
+        verify(jwtDecoder, times(2)).decode(TOKEN);
+        assertThat(manager.cachedTokenCount()).isZero();
+    }
+
+    private CachingJwtAuthenticationManager manager(long maxBytes, Duration maxTtl) {
+        return new CachingJwtAuthenticationManager(jwtDecoder, new JwtAuthenticationConverter(), true, maxBytes, maxTtl,
+                new SimpleMeterRegistry());
+    }
+
+    private static BearerTokenAuthenticationToken bearer(String token, Object details) {
+        BearerTokenAuthenticationToken bearer = new BearerTokenAuthenticationToken(token);
+        bearer.setDetails(details);
+        return bearer;
+    }
+
+    private static Jwt jwt(String token, Instant expiresAt) {
+        return Jwt.withTokenValue(token)
+                .header("alg", "RS256")
+                .subject("6f1c2c1e-8f43-4a4b-9d6a-1d2b3c4d5e6f")
+                .claim("scope", List.of("profile"))
+                .issuedAt(expiresAt.minusSeconds(600))
+                .expiresAt(expiresAt)
+                .build();
+    }
+}
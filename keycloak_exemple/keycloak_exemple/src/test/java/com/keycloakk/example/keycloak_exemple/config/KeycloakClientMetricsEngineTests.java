@@ -0,0 +1,164 @@
+package com.keycloakk.example.keycloak_exemple.config;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.ws.rs.ProcessingException;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.jboss.resteasy.client.jaxrs.ResteasyClient;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeycloakClientMetricsEngineTests {
+
+    private static final String USER_PATH = "/admin/realms/demo/users/6f1c2c1e-8f43-4a4b-9d6a-1d2b3c4d5e6f";
+
+    @Test
+    void normalizeReplacesRealmRoleAndIdSegments() {
+        assertThat(KeycloakClientMetricsEngine.normalize(USER_PATH + "/role-mappings/realm"))
+                .isEqualTo("/admin/realms/{realm}/users/{id}/role-mappings/realm");
+        assertThat(KeycloakClientMetricsEngine.normalize("/admin/realms/demo/roles/MERCHANT/users"))
+                .isEqualTo("/admin/realms/{realm}/roles/{role}/users");
+        assertThat(KeycloakClientMetricsEngine.normalize("/realms/master/protocol/openid-connect/token"))
+                .isEqualTo("/realms/{realm}/protocol/openid-connect/token");
+    }
+
+    @Test
+    void normalizeKeepsStaticPathsAndCollapsesEmptySegments() {
+        assertThat(KeycloakClientMetricsEngine.normalize("/admin/realms")).isEqualTo("/admin/realms");
+        assertThat(KeycloakClientMetricsEngine.normalize("//admin//serverinfo/")).isEqualTo("/admin/serverinfo");
+        assertThat(KeycloakClientMetricsEngine.normalize("")).isEqualTo("/");
+        assertThat(KeycloakClientMetricsEngine.normalize("/admin/realms/demo/users/not-an-id"))
+                .isEqualTo("/admin/realms/{realm}/users/not-an-id");
+    }
+
+    @Test
+    void recordsReadTimeoutsWithoutResponse() throws IOException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        // Connexion acceptée par le système mais aucune réponse: délai de lecture dépassé
+        try (ServerSocket silentServer = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            callThrough(silentServer.getLocalPort(), registry);
+        }
+
+        Timer timer = registry.find("keycloak.admin.requests").tag("outcome", "TIMEOUT").timer();
+        assertThat(timer).isNotNull();
+        assertThat(timer.count()).isEqualTo(1);
+        assertThat(timer.getId().getTag("status")).isEqualTo("NONE");
+        assertThat(timer.getId().getTag("uri")).isEqualTo("/admin/realms/{realm}/users/{id}");
+    }
+
+    @Test
+    void recordsRefusedConnectionsAsIoError() throws IOException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            closedPort = socket.getLocalPort();
+        }
+
+        callThrough(closedPort, registry);
+
+        Timer timer = registry.find("keycloak.admin.requests").tag("outcome", "IO_ERROR").timer();
+        assertThat(timer).isNotNull();
+        assertThat(timer.count()).isEqualTo(1);
+    }
+
+    @Test
+    void parallelCallersShareThePooledConnections() throws Exception {
+        int callers = 16;
+        int callsPerCaller = 10;
+        int maxPerRoute = 4;
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        // Stub de l'API d'administration: chaque connexion TCP ouverte par le client est identifiée par son port source
+        Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+        HttpServer stub = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        stub.createContext("/admin/realms", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            byte[] body = "{\"id\":\"6f1c2c1e-8f43-4a4b-9d6a-1d2b3c4d5e6f\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        ExecutorService stubThreads = Executors.newFixedThreadPool(callers);
+        stub.setExecutor(stubThreads);
+        stub.start();
+
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxPerRoute);
+        connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom().setConnectTimeout(1000).setSocketTimeout(5000)
+                        .setConnectionRequestTimeout(5000).build())
+                .build();
+        ResteasyClientBuilder builder = (ResteasyClientBuilder) ResteasyClientBuilder.newBuilder();
+        String url = "http://127.0.0.1:" + stub.getAddress().getPort() + USER_PATH;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try (ResteasyClient client = builder.httpEngine(new KeycloakClientMetricsEngine(httpClient, registry)).build()) {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> results = new ArrayList<>();
+            for (int caller = 0; caller < callers; caller++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    for (int call = 0; call < callsPerCaller; call++) {
+                        assertThat(client.target(url).request().get(String.class)).contains("6f1c2c1e");
+                    }
+                    return null;
+                }));
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get(30, TimeUnit.SECONDS);
+            }
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+            System.out.println(callers * callsPerCaller + " appels en " + elapsedMillis + " ms sur "
+                    + clientPorts.size() + " connexion(s)");
+        } finally {
+            executor.shutdownNow();
+            stub.stop(0);
+            stubThreads.shutdownNow();
+        }
+
+        // Toutes les réponses sont revenues au pool, sans jamais ouvrir plus de connexions que maxPerRoute
+        assertThat(clientPorts).hasSizeBetween(1, maxPerRoute);
+        assertThat(connectionManager.getTotalStats().getLeased()).isZero();
+        Timer timer = registry.find("keycloak.admin.requests").tag("outcome", "SUCCESS").tag("status", "200").timer();
+        assertThat(timer).isNotNull();
+        assertThat(timer.count()).isEqualTo((long) callers * callsPerCaller);
+    }
+
+    private static void callThrough(int port, SimpleMeterRegistry registry) {
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setDefaultRequestConfig(RequestConfig.custom().setConnectTimeout(1000).setSocketTimeout(200).build())
+                .build();
+        ResteasyClientBuilder builder = (ResteasyClientBuilder) ResteasyClientBuilder.newBuilder();
+        try (ResteasyClient client = builder.httpEngine(new KeycloakClientMetricsEngine(httpClient, registry)).build()) {
+            assertThatThrownBy(() -> client.target("http://127.0.0.1:" + port + USER_PATH).request().get())
+                    .isInstanceOf(ProcessingException.class);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.keycloakk.example.keycloak_exemple.config;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Jetons signés RS256 au format d'un jeton d'accès Keycloak (claims standard, realm_access et le claim
+ * roles lu par SecurityConfig), avec le décodeur Nimbus correspondant à la clé de signature.
+ */
+final class SignedTestTokens {
+
+    private final KeyPair keyPair;
+
+    SignedTestTokens() {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            this.keyPair = generator.generateKeyPair();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    JwtDecoder decoder() {
+        return NimbusJwtDecoder.withPublicKey((RSAPublicKey) keyPair.getPublic()).build();
+    }
+
+    // roles: nombre de rôles du realm; extraClaimLength: taille d'un claim supplémentaire (attributs, groupes, ...)
+    String token(int roles, int extraClaimLength) {
+        List<String> realmRoles = new ArrayList<>();
+        for (int i = 0; i < roles; i++) {
+            realmRoles.add("role-" + i);
+        }
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .issuer("http://localhost:14082/realms/springboot-test")
+                .subject(UUID.randomUUID().toString())
+                .audience("account")
+                .expirationTime(new Date(System.currentTimeMillis() + 300_000))
+                .issueTime(new Date())
+                .jwtID(UUID.randomUUID().toString())
+                .claim("typ", "Bearer")
+                .claim("azp", "springboot-client")
+                .claim("sid", UUID.randomUUID().toString())
+                .claim("scope", "openid profile email")
+                .claim("realm_access", Map.of("roles", realmRoles))
+                .claim("roles", realmRoles)
+                .claim("preferred_username", "jdoe")
+                .claim("email", "jdoe@example.com")
+                .claim("email_verified", true)
+                .claim("attributes", "x".repeat(extraClaimLength))
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256)
+                .keyID("test-key").type(JOSEObjectType.JWT).build(), claims);
+        try {
+            jwt.sign(new RSASSASigner(keyPair.getPrivate()));
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e);
+        }
+        return jwt.serialize();
+    }
+}
@@ -0,0 +1,62 @@
+package com.keycloakk.example.keycloak_exemple.jobs;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.quartz.CronTrigger;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TransactionPartitionMaintenanceScheduleTests {
+
+    private final Scheduler scheduler = mock(Scheduler.class);
+    private TransactionPartitionMaintenanceSchedule schedule;
+
+    @BeforeEach
+    void setUp() {
+        schedule = new TransactionPartitionMaintenanceSchedule(scheduler);
+        ReflectionTestUtils.setField(schedule, "cron", "0 30 2 * * ?");
+    }
+
+    @Test
+    void storedTriggerWithTheConfiguredCronIsKept() throws SchedulerException {
+        when(scheduler.getTrigger(TransactionPartitionMaintenanceJob.TRIGGER_KEY))
+                .thenReturn(TransactionPartitionMaintenanceJob.buildTrigger("0 30 2 * * ?"));
+
+        schedule.onApplicationReady();
+
+        verify(scheduler, never()).rescheduleJob(any(), any());
+    }
+
+    @Test
+    void storedTriggerWithAnotherCronIsRescheduled() throws SchedulerException {
+        when(scheduler.getTrigger(TransactionPartitionMaintenanceJob.TRIGGER_KEY))
+                .thenReturn(TransactionPartitionMaintenanceJob.buildTrigger("0 0 3 * * ?"));
+
+        schedule.onApplicationReady();
+
+        ArgumentCaptor<Trigger> replacement = ArgumentCaptor.forClass(Trigger.class);
+        verify(scheduler).rescheduleJob(eq(TransactionPartitionMaintenanceJob.TRIGGER_KEY), replacement.capture());
+        assertThat(replacement.getValue()).isInstanceOf(CronTrigger.class);
+        assertThat(((CronTrigger) replacement.getValue()).getCronExpression()).isEqualTo("0 30 2 * * ?");
+        assertThat(replacement.getValue().getJobKey()).isEqualTo(TransactionPartitionMaintenanceJob.JOB_KEY);
+        assertThat(replacement.getValue().getMisfireInstruction()).isEqualTo(CronTrigger.MISFIRE_INSTRUCTION_FIRE_ONCE_NOW);
+    }
+
+    @Test
+    void missingTriggerIsLeftToTheSchedulerFactory() throws SchedulerException {
+        schedule.onApplicationReady();
+
+        verify(scheduler, never()).rescheduleJob(any(), any());
+    }
+}
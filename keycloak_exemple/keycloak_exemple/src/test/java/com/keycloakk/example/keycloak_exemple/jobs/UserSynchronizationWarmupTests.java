@@ -0,0 +1,59 @@
+package com.keycloakk.example.keycloak_exemple.jobs;
+
+import com.keycloakk.example.keycloak_exemple.services.KeycloakUserSyncService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserSynchronizationWarmupTests {
+
+    private final KeycloakUserSyncService keycloakUserSyncService = mock(KeycloakUserSyncService.class);
+    private UserSynchronizationWarmup warmup;
+
+    @BeforeEach
+    void setUp() {
+        warmup = new UserSynchronizationWarmup(keycloakUserSyncService);
+        ReflectionTestUtils.setField(warmup, "readinessCheckInterval", Duration.ofMinutes(1));
+    }
+
+    @Test
+    void negativeSnapshotCheckIsReusedWithinTheInterval() {
+        when(keycloakUserSyncService.hasSynchronizedSnapshot()).thenReturn(false);
+
+        for (int probe = 0; probe < 100; probe++) {
+            assertThat(warmup.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+        }
+
+        verify(keycloakUserSyncService, times(1)).hasSynchronizedSnapshot();
+    }
+
+    @Test
+    void snapshotIsCheckedAgainOnceTheIntervalElapsed() {
+        ReflectionTestUtils.setField(warmup, "readinessCheckInterval", Duration.ZERO);
+        when(keycloakUserSyncService.hasSynchronizedSnapshot()).thenReturn(false, true);
+
+        assertThat(warmup.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+        assertThat(warmup.health().getStatus()).isEqualTo(Status.UP);
+        assertThat(warmup.health().getStatus()).isEqualTo(Status.UP);
+
+        verify(keycloakUserSyncService, times(2)).hasSynchronizedSnapshot();
+    }
+
+    @Test
+    void localSynchronizationMakesTheInstanceReadyWithoutQuery() {
+        warmup.markSynchronized();
+
+        assertThat(warmup.health().getStatus()).isEqualTo(Status.UP);
+        verify(keycloakUserSyncService, never()).hasSynchronizedSnapshot();
+    }
+}
@@ -0,0 +1,61 @@
+package com.keycloakk.example.keycloak_exemple.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+import static com.keycloakk.example.keycloak_exemple.model.TransactionStatus.COMPLETED;
+import static com.keycloakk.example.keycloak_exemple.model.TransactionStatus.FAILED;
+import static com.keycloakk.example.keycloak_exemple.model.TransactionStatus.PENDING;
+import static com.keycloakk.example.keycloak_exemple.model.TransactionStatus.REFUNDED;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransactionStatusTests {
+
+    // Expected transitions, from -> allowed targets
+    private static final Map<TransactionStatus, Set<TransactionStatus>> ALLOWED = new EnumMap<>(Map.of(
+            PENDING, EnumSet.of(COMPLETED, FAILED),
+            COMPLETED, EnumSet.of(REFUNDED),
+            FAILED, EnumSet.noneOf(TransactionStatus.class),
+            REFUNDED, EnumSet.noneOf(TransactionStatus.class)));
+
+    @Test
+    void everyStatusIsCoveredByTheExpectedTable() {
+        assertThat(ALLOWED.keySet()).containsExactlyInAnyOrder(TransactionStatus.values());
+    }
+
+    @Test
+    void onlyTheExpectedTransitionsAreAllowed() {
+        for (TransactionStatus from : TransactionStatus.values()) {
+            for (TransactionStatus to : TransactionStatus.values()) {
+                assertThat(to.getPredecessors().contains(from))
+                        .as("%s -> %s", from, to)
+                        .isEqualTo(ALLOWED.get(from).contains(to));
+            }
+        }
+    }
+
+    @Test
+    void pendingCannotBeReachedAgain() {
+        assertThat(PENDING.getPredecessors()).isEmpty();
+    }
+
+    @Test
+    void noStatusIsItsOwnPredecessor() {
+        assertThat(Arrays.stream(TransactionStatus.values()).filter(status -> status.getPredecessors().contains(status)))
+                .isEmpty();
+    }
+
+    @Test
+    void terminalStatusesHaveNoSuccessor() {
+        for (TransactionStatus terminal : EnumSet.of(FAILED, REFUNDED)) {
+            assertThat(Arrays.stream(TransactionStatus.values()).filter(status -> status.getPredecessors().contains(terminal)))
+                    .as("successors of %s", terminal)
+                    .isEmpty();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.keycloakk.example.keycloak_exemple.repositories;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Plans d'exécution (EXPLAIN) des requêtes de TransactionRepository et StoreRepository sur le schéma des
+ * migrations Flyway, avec un volume de données où un parcours séquentiel serait choisi sans les index:
+ * chaque requête doit passer par l'index prévu pour elle. Les index des partitions mensuelles sont
+ * rattachés à l'index partitionné de la table transaction.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class IndexUsageTests {
+
+    private static final int CUSTOMERS = 10_000;
+    private static final int MERCHANTS = 2_000;
+    private static final int STORES = 20_000;
+    private static final int TRANSACTIONS = 300_000;
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static JdbcTemplate jdbcTemplate;
+    private static Timestamp now;
+
+    @BeforeAll
+    static void seed() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load().migrate();
+
+        // Clients 1..CUSTOMERS, puis marchands; 10 magasins par marchand; transactions sur les trois derniers
+        // mois, 1 % non terminées. Sur une base vide, V4 ne crée les partitions qu'à partir du mois courant:
+        // les mois précédents vont dans transaction_default, les partitions des mois à venir restent vides
+        jdbcTemplate.update("""
+                insert into app_user (id, username, first_name, last_name, email, role, keycloak_id)
+                select i, 'user' || i, 'First', 'Last', 'user' || i || '@example.com',
+                       case when i <= ? then 'CUSTOMER' else 'MERCHANT' end, gen_random_uuid()::text
+                from generate_series(1, ?) i
+                """, CUSTOMERS, CUSTOMERS + MERCHANTS);
+        jdbcTemplate.update("""
+                insert into store (name, merchant_id)
+                select 'Store ' || i, ? + 1 + i % ? from generate_series(1, ?) i
+                """, CUSTOMERS, MERCHANTS, STORES);
+        jdbcTemplate.update("""
+                insert into transaction (id, amount, transaction_date, description, status, customer_id, store_id)
+                select i, (i % 10000) / 100.0, date_trunc('month', localtimestamp) - interval '2 months'
+                         + (i % 80) * interval '1 day' + (i % 86400) * interval '1 second',
+                       'Purchase', case when i % 100 = 0 then 'PENDING' when i % 100 = 1 then 'FAILED' else 'COMPLETED' end,
+                       1 + i % ?, 1 + i % ?
+                from generate_series(1, ?) i
+                """, CUSTOMERS, STORES, TRANSACTIONS);
+        jdbcTemplate.execute("analyze");
+        now = jdbcTemplate.queryForObject("select localtimestamp", Timestamp.class);
+    }
+
+    @Test
+    void storePageUsesTheStoreDateIndex() {
+        // findPageByStoreId
+        assertThat(indexesUsed("""
+                select t.id, t.amount, t.transaction_date, t.description, t.status, t.customer_id, t.store_id
+                from transaction t where t.store_id = ? and t.transaction_date <= ?
+                  and (t.transaction_date < ? or (t.transaction_date = ? and t.id < ?))
+                order by t.transaction_date desc, t.id desc fetch first ? rows only
+                """, 42L, now, now, now, Long.MAX_VALUE, 20)).containsExactly("idx_transaction_store_date");
+    }
+
+    @Test
+    void storeDateRangeUsesTheStoreDateIndex() {
+        // findByStoreAndTransactionDateBetween
+        Timestamp start = Timestamp.valueOf(LocalDate.now().withDayOfMonth(1).minusMonths(1).atStartOfDay());
+        assertThat(indexesUsed("""
+                select t.id, t.amount, t.customer_id, t.description, t.status, t.store_id, t.transaction_date
+                from transaction t where t.store_id = ? and t.transaction_date between ? and ?
+                """, 42L, start, now)).containsExactly("idx_transaction_store_date");
+    }
+
+    @Test
+    void customerPageUsesTheCustomerDateIndex() {
+        // findPageByCustomerId
+        assertThat(indexesUsed("""
+                select t.id, t.amount, t.transaction_date, t.description, t.status, t.customer_id, t.store_id
+                from transaction t where t.customer_id = ? and t.transaction_date <= ?
+                  and (t.transaction_date < ? or (t.transaction_date = ? and t.id < ?))
+                order by t.transaction_date desc, t.id desc fetch first ? rows only
+                """, 42L, now, now, now, Long.MAX_VALUE, 20)).containsExactly("idx_transaction_customer_date");
+    }
+
+    @Test
+    void customerDateRangeUsesTheCustomerDateIndex() {
+        // findByCustomerAndTransactionDateBetween
+        Timestamp start = Timestamp.valueOf(LocalDateTime.now().minusDays(30));
+        assertThat(indexesUsed("""
+                select t.id, t.amount, t.customer_id, t.description, t.status, t.store_id, t.transaction_date
+                from transaction t where t.customer_id = ? and t.transaction_date between ? and ?
+                """, 42L, start, now)).containsExactly("idx_transaction_customer_date");
+    }
+
+    @Test
+    void openStatusUsesThePartialStatusIndex() {
+        // findByStatus(PENDING)
+        assertThat(indexesUsed("""
+                select t.id, t.amount, t.customer_id, t.description, t.status, t.store_id, t.transaction_date
+                from transaction t where t.status = ?
+                """, "PENDING")).containsExactly("idx_transaction_status_open");
+    }
+
+    @Test
+    void merchantStoresUseTheMerchantIndex() {
+        // findDTOsByMerchantId / findByMerchant
+        assertThat(indexesUsed("""
+                select s.id, s.name, s.description, s.address, s.merchant_id from store s where s.merchant_id = ?
+                """, CUSTOMERS + 7L)).containsExactly("idx_store_merchant");
+    }
+
+    // Index parcourus par le plan, ramenés à l'index partitionné pour les index de partition. Un parcours
+    // séquentiel n'est admis que sur une partition vide (mois à venir), où le planificateur le préfère
+    private static Set<String> indexesUsed(String sql, Object... args) {
+        String plan = jdbcTemplate.queryForObject("explain (format json) " + sql, String.class, args);
+        JsonNode root;
+        try {
+            root = OBJECT_MAPPER.readTree(plan);
+        } catch (Exception e) {
+            throw new IllegalStateException("Plan illisible: " + plan, e);
+        }
+        for (JsonNode node : root.findParents("Node Type")) {
+            if ("Seq Scan".equals(node.path("Node Type").asText())) {
+                assertThat(jdbcTemplate.queryForObject("select exists (select 1 from " + node.path("Relation Name").asText() + ")",
+                        Boolean.class)).as("parcours séquentiel de %s dans %s", node.path("Relation Name").asText(), plan).isFalse();
+            }
+        }
+        Set<String> indexes = new HashSet<>();
+        for (JsonNode indexName : root.findValues("Index Name")) {
+            indexes.add(jdbcTemplate.queryForObject("""
+                    select coalesce((select p.relname from pg_inherits i join pg_class p on p.oid = i.inhparent
+                                     where i.inhrelid = c.oid), c.relname)
+                    from pg_class c where c.relname = ?
+                    """, String.class, indexName.asText()));
+        }
+        return indexes;
+    }
+}
@@ -0,0 +1,81 @@
+package com.keycloakk.example.keycloak_exemple.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KeycloakIdSetTests {
+
+    @Test
+    void containsAllIdsAfterGrowingPastInitialCapacity() {
+        KeycloakIdSet set = new KeycloakIdSet();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            ids.add(UUID.randomUUID().toString());
+        }
+
+        ids.forEach(set::add);
+
+        assertThat(set.size()).isEqualTo(5000);
+        assertThat(ids).allMatch(set::contains);
+    }
+
+    @Test
+    void ignoresDuplicates() {
+        KeycloakIdSet set = new KeycloakIdSet();
+        String id = UUID.randomUUID().toString();
+
+        set.add(id);
+        set.add(id);
+        set.add(id.toUpperCase());
+
+        assertThat(set.size()).isEqualTo(1);
+    }
+
+    @Test
+    void keepsIdsSharingTheSameSlot() {
+        // msb ^ lsb identiques: même hachage, donc même case de départ
+        UUID first = new UUID(0x1234L, 0x5678L);
+        UUID second = new UUID(0x5678L, 0x1234L);
+        UUID third = new UUID(0x1234L ^ 0xFFL, 0x5678L ^ 0xFFL);
+        KeycloakIdSet set = new KeycloakIdSet();
+
+        set.add(first.toString());
+        set.add(second.toString());
+        set.add(third.toString());
+
+        assertThat(set.size()).isEqualTo(3);
+        assertThat(set.contains(first.toString())).isTrue();
+        assertThat(set.contains(second.toString())).isTrue();
+        assertThat(set.contains(third.toString())).isTrue();
+        assertThat(set.contains(new UUID(0x1234L ^ 0xF0L, 0x5678L ^ 0xF0L).toString())).isFalse();
+    }
+
+    @Test
+    void doesNotContainMissingIds() {
+        KeycloakIdSet set = new KeycloakIdSet();
+        for (int i = 0; i < 600; i++) {
+            set.add(UUID.randomUUID().toString());
+        }
+
+        assertThat(set.contains(UUID.randomUUID().toString())).isFalse();
+        assertThat(set.contains("not-a-uuid")).isFalse();
+        assertThat(set.contains(null)).isFalse();
+    }
+
+    @Test
+    void storesNonUuidIdsSeparately() {
+        KeycloakIdSet set = new KeycloakIdSet();
+
+        set.add("f:ldap-provider:jdoe");
+        set.add(UUID.randomUUID().toString());
+
+        assertThat(set.size()).isEqualTo(2);
+        assertThat(set.contains("f:ldap-provider:jdoe")).isTrue();
+        assertThat(set.contains("f:ldap-provider:other")).isFalse();
+    }
+}
@@ -0,0 +1,116 @@
+package com.keycloakk.example.keycloak_exemple.services;
+
+import com.keycloakk.example.keycloak_exemple.model.KeycloakOperation;
+import com.keycloakk.example.keycloak_exemple.model.KeycloakOutboxEvent;
+import com.keycloakk.example.keycloak_exemple.model.OutboxStatus;
+import com.keycloakk.example.keycloak_exemple.model.User;
+import com.keycloakk.example.keycloak_exemple.repositories.KeycloakOutboxRepository;
+import com.keycloakk.example.keycloak_exemple.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class KeycloakOutboxServiceTests {
+
+    private final KeycloakOutboxRepository outboxRepository = mock(KeycloakOutboxRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final KeycloakService keycloakService = mock(KeycloakService.class);
+    private KeycloakOutboxService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new KeycloakOutboxService(outboxRepository, userRepository, keycloakService,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(service, "batchSize", 100);
+        ReflectionTestUtils.setField(service, "maxAttempts", 10);
+        ReflectionTestUtils.setField(service, "retryDelay", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(service, "lockTimeout", Duration.ofMinutes(2));
+        when(outboxRepository.renewLock(anyCollection(), any(), any()))
+                .thenAnswer(invocation -> invocation.<Collection<?>>getArgument(0).size());
+    }
+
+    @Test
+    void coalescesUpdatesIntoOneCallPerUser() {
+        List<KeycloakOutboxEvent> events = List.of(
+                event(1L, KeycloakOperation.UPDATE_USER, "kc-1"),
+                event(2L, KeycloakOperation.UPDATE_USER, "kc-1"),
+                event(3L, KeycloakOperation.UPDATE_USER, "kc-1"));
+        when(outboxRepository.lockNextBatch(any(), anyInt())).thenReturn(events);
+        User user = new User();
+        user.setKeycloakId("kc-1");
+        when(userRepository.findByKeycloakId("kc-1")).thenReturn(Optional.of(user));
+
+        service.dispatchPendingOperations();
+
+        verify(keycloakService, times(1)).updateKeycloakUser(user);
+        assertThat(events).allMatch(event -> event.getStatus() == OutboxStatus.DONE && event.getLockedUntil() == null);
+    }
+
+    @Test
+    void deleteWinsOverUpdatesOfTheSameUser() {
+        List<KeycloakOutboxEvent> events = List.of(
+                event(1L, KeycloakOperation.UPDATE_USER, "kc-1"),
+                event(2L, KeycloakOperation.DELETE_USER, "kc-1"),
+                event(3L, KeycloakOperation.UPDATE_USER, "kc-1"));
+        when(outboxRepository.lockNextBatch(any(), anyInt())).thenReturn(events);
+
+        service.dispatchPendingOperations();
+
+        verify(keycloakService, times(1)).deleteKeycloakUser("kc-1");
+        verify(keycloakService, never()).updateKeycloakUser(any());
+        assertThat(events).allMatch(event -> event.getStatus() == OutboxStatus.DONE);
+    }
+
+    @Test
+    void skipsUsersWhoseLockWasTakenOverByAnotherInstance() {
+        List<KeycloakOutboxEvent> events = List.of(event(1L, KeycloakOperation.DELETE_USER, "kc-1"));
+        when(outboxRepository.lockNextBatch(any(), anyInt())).thenReturn(events);
+        when(outboxRepository.renewLock(anyCollection(), any(), any())).thenReturn(0);
+
+        service.dispatchPendingOperations();
+
+        verify(keycloakService, never()).deleteKeycloakUser(any());
+        verify(outboxRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void reschedulesAllCoalescedEventsOnFailure() {
+        List<KeycloakOutboxEvent> events = List.of(
+                event(1L, KeycloakOperation.DELETE_USER, "kc-1"),
+                event(2L, KeycloakOperation.UPDATE_USER, "kc-1"));
+        when(outboxRepository.lockNextBatch(any(), anyInt())).thenReturn(events);
+        doThrow(new IllegalStateException("HTTP 503")).when(keycloakService).deleteKeycloakUser("kc-1");
+
+        service.dispatchPendingOperations();
+
+        assertThat(events).allSatisfy(event -> {
+            assertThat(event.getStatus()).isEqualTo(OutboxStatus.PENDING);
+            assertThat(event.getAttempts()).isEqualTo(1);
+            assertThat(event.getLastError()).contains("HTTP 503");
+        });
+    }
+
+    private static KeycloakOutboxEvent event(Long id, KeycloakOperation operation, String keycloakId) {
+        KeycloakOutboxEvent event = KeycloakOutboxEvent.createEvent(operation, keycloakId, "user-" + keycloakId);
+        event.setId(id);
+        return event;
+    }
+}
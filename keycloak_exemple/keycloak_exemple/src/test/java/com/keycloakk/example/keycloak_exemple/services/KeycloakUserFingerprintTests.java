@@ -0,0 +1,70 @@
+package com.keycloakk.example.keycloak_exemple.services;
+
+import com.keycloakk.example.keycloak_exemple.model.UserRole;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.idm.UserRepresentation;
+
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KeycloakUserFingerprintTests {
+
+    @Test
+    void isStableForIdenticalUsers() {
+        assertThat(KeycloakUserSyncService.fingerprint(user(u -> { }), UserRole.CUSTOMER))
+                .isEqualTo(KeycloakUserSyncService.fingerprint(user(u -> { }), UserRole.CUSTOMER));
+    }
+
+    @Test
+    void ignoresFieldsThatAreNotSynchronized() {
+        long base = KeycloakUserSyncService.fingerprint(user(u -> { }), UserRole.CUSTOMER);
+
+        assertThat(KeycloakUserSyncService.fingerprint(user(u -> u.setEnabled(false)), UserRole.CUSTOMER)).isEqualTo(base);
+    }
+
+    @Test
+    void changesWithEachSynchronizedField() {
+        long base = KeycloakUserSyncService.fingerprint(user(u -> { }), UserRole.CUSTOMER);
+
+        assertThat(KeycloakUserSyncService.fingerprint(user(u -> u.setUsername("jdoe2")), UserRole.CUSTOMER)).isNotEqualTo(base);
+        assertThat(KeycloakUserSyncService.fingerprint(user(u -> u.setEmail("other@example.com")), UserRole.CUSTOMER)).isNotEqualTo(base);
+        assertThat(KeycloakUserSyncService.fingerprint(user(u -> u.setFirstName("Jane")), UserRole.CUSTOMER)).isNotEqualTo(base);
+        assertThat(KeycloakUserSyncService.fingerprint(user(u -> u.setLastName("Smith")), UserRole.CUSTOMER)).isNotEqualTo(base);
+        assertThat(KeycloakUserSyncService.fingerprint(user(u -> u.setEmail(null)), UserRole.CUSTOMER)).isNotEqualTo(base);
+    }
+
+    @Test
+    void changesWithRole() {
+        UserRepresentation user = user(u -> { });
+
+        assertThat(KeycloakUserSyncService.fingerprint(user, UserRole.MERCHANT))
+                .isNotEqualTo(KeycloakUserSyncService.fingerprint(user, UserRole.CUSTOMER));
+    }
+
+    @Test
+    void doesNotConfuseValuesShiftedBetweenFields() {
+        long split = KeycloakUserSyncService.fingerprint(user(u -> {
+            u.setFirstName("Jean");
+            u.setLastName("Paul");
+        }), UserRole.CUSTOMER);
+        long shifted = KeycloakUserSyncService.fingerprint(user(u -> {
+            u.setFirstName("JeanPaul");
+            u.setLastName("");
+        }), UserRole.CUSTOMER);
+
+        assertThat(split).isNotEqualTo(shifted);
+    }
+
+    private static UserRepresentation user(Consumer<UserRepresentation> customizer) {
+        UserRepresentation user = new UserRepresentation();
+        user.setId("6f1c2c1e-8f43-4a4b-9d6a-1d2b3c4d5e6f");
+        user.setUsername("jdoe");
+        user.setEmail("jdoe@example.com");
+        user.setFirstName("John");
+        user.setLastName("Doe");
+        user.setEnabled(true);
+        customizer.accept(user);
+        return user;
+    }
+}
@@ -0,0 +1,56 @@
+package com.keycloakk.example.keycloak_exemple.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KeycloakUserSyncEventScanTests {
+
+    @Test
+    void userEventsMarkUsersChangedWithoutRoleChange() {
+        KeycloakUserSyncService.EventScan scan = new KeycloakUserSyncService.EventScan(100);
+
+        scan.addAdminEvent("USER", "u1", 150);
+        scan.addUserEvent("u2", 120);
+
+        assertThat(scan.changedUserIds).containsExactly("u1", "u2");
+        assertThat(scan.roleChangedUserIds).isEmpty();
+        assertThat(scan.structuralChange).isFalse();
+        assertThat(scan.lastEventTime).isEqualTo(150);
+    }
+
+    @Test
+    void roleMappingAndGroupMembershipEventsMarkRoleChanges() {
+        KeycloakUserSyncService.EventScan scan = new KeycloakUserSyncService.EventScan(100);
+
+        scan.addAdminEvent("REALM_ROLE_MAPPING", "u1", 110);
+        scan.addAdminEvent("GROUP_MEMBERSHIP", "u2", 120);
+
+        assertThat(scan.roleChangedUserIds).containsExactlyInAnyOrder("u1", "u2");
+        assertThat(scan.structuralChange).isFalse();
+    }
+
+    @Test
+    void groupAndCompositeRoleChangesRequireFullReconciliation() {
+        KeycloakUserSyncService.EventScan groupRoles = new KeycloakUserSyncService.EventScan(0);
+        groupRoles.addAdminEvent("REALM_ROLE_MAPPING", null, 10);
+        assertThat(groupRoles.structuralChange).isTrue();
+
+        KeycloakUserSyncService.EventScan composite = new KeycloakUserSyncService.EventScan(0);
+        composite.addAdminEvent("REALM_ROLE", null, 10);
+        assertThat(composite.structuralChange).isTrue();
+
+        KeycloakUserSyncService.EventScan group = new KeycloakUserSyncService.EventScan(0);
+        group.addAdminEvent("GROUP", null, 10);
+        assertThat(group.structuralChange).isTrue();
+    }
+
+    @Test
+    void cursorNeverMovesBackwards() {
+        KeycloakUserSyncService.EventScan scan = new KeycloakUserSyncService.EventScan(500);
+
+        scan.addUserEvent("u1", 400);
+
+        assertThat(scan.lastEventTime).isEqualTo(500);
+    }
+}
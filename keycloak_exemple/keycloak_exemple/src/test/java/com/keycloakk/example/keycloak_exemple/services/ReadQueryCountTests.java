@@ -0,0 +1,170 @@
+package com.keycloakk.example.keycloak_exemple.services;
+
+import com.keycloakk.example.keycloak_exemple.dtos.StoreDTO;
+import com.keycloakk.example.keycloak_exemple.dtos.TransactionDTO;
+import com.keycloakk.example.keycloak_exemple.dtos.UserIdentity;
+import com.keycloakk.example.keycloak_exemple.exception.UnauthorizedOperationException;
+import com.keycloakk.example.keycloak_exemple.model.Store;
+import com.keycloakk.example.keycloak_exemple.model.Transaction;
+import com.keycloakk.example.keycloak_exemple.model.User;
+import com.keycloakk.example.keycloak_exemple.model.UserRole;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.when;
+
+/**
+ * Nombre de requêtes SQL des lectures de TransactionService et StoreService, mesuré avec les statistiques
+ * Hibernate sur le schéma des migrations Flyway: une requête par lecture (projection DTO, contrôle de
+ * propriété joint en SQL) et aucune entité chargée. L'identité de l'appelant vient de UserIdentityCache,
+ * simulé ici: son chemin en cache ne fait aucune requête (voir UserIdentityCacheTests).
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({TransactionService.class, StoreService.class})
+@Testcontainers(disabledWithoutDocker = true)
+class ReadQueryCountTests {
+
+    private static final String CUSTOMER_KEYCLOAK_ID = "6f1c2c1e-8f43-4a4b-9d6a-1d2b3c4d5e6f";
+    private static final String MERCHANT_KEYCLOAK_ID = "0b7e4c1a-2d3f-4e5a-8b9c-0d1e2f3a4b5c";
+    private static final String OTHER_MERCHANT_KEYCLOAK_ID = "9a8b7c6d-5e4f-4a3b-8c2d-1e0f9a8b7c6d";
+
+    @Container
+    @ServiceConnection
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private StoreService storeService;
+
+    @MockitoBean
+    private UserIdentityCache userIdentityCache;
+
+    @MockitoBean
+    private StoreDailyStatsService storeDailyStatsService;
+
+    @MockitoBean
+    private UserRoleReconciler userRoleReconciler;
+
+    private Statistics statistics;
+    private Store store;
+    private Transaction transaction;
+
+    @BeforeEach
+    void setUp() {
+        User customer = entityManager.persist(user("jdoe", CUSTOMER_KEYCLOAK_ID, UserRole.CUSTOMER));
+        User merchant = entityManager.persist(user("shop", MERCHANT_KEYCLOAK_ID, UserRole.MERCHANT));
+        User otherMerchant = entityManager.persist(user("other", OTHER_MERCHANT_KEYCLOAK_ID, UserRole.MERCHANT));
+        store = entityManager.persist(Store.createStore("Corner shop", "Groceries", "1 Main St", merchant));
+        entityManager.persist(Store.createStore("Other shop", null, null, otherMerchant));
+        transaction = entityManager.persist(Transaction.createTransaction(new BigDecimal("19.90"), "Lunch", customer, store));
+        entityManager.flush();
+        entityManager.clear();
+
+        identity(customer);
+        identity(merchant);
+        identity(otherMerchant);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void transactionByIdIsOneQueryWithTheOwnershipJoin() {
+        TransactionDTO asCustomer = transactionService.getTransactionById(transaction.getId(), CUSTOMER_KEYCLOAK_ID, UserRole.CUSTOMER);
+        assertSingleQueryWithoutEntities();
+
+        statistics.clear();
+        TransactionDTO asMerchant = transactionService.getTransactionById(transaction.getId(), MERCHANT_KEYCLOAK_ID, UserRole.MERCHANT);
+        assertSingleQueryWithoutEntities();
+
+        assertThat(asCustomer.getId()).isEqualTo(transaction.getId());
+        assertThat(asMerchant.getStoreId()).isEqualTo(store.getId());
+    }
+
+    @Test
+    void transactionOfAnotherMerchantIsRejectedAfterOneQuery() {
+        assertThatThrownBy(() -> transactionService.getTransactionById(transaction.getId(), OTHER_MERCHANT_KEYCLOAK_ID, UserRole.MERCHANT))
+                .isInstanceOf(UnauthorizedOperationException.class);
+        assertSingleQueryWithoutEntities();
+    }
+
+    @Test
+    void storeListingsAreOneQueryEach() {
+        List<StoreDTO> merchantStores = storeService.getStoresByMerchant(MERCHANT_KEYCLOAK_ID);
+        assertSingleQueryWithoutEntities();
+
+        statistics.clear();
+        List<StoreDTO> allStores = storeService.getAllStores();
+        assertSingleQueryWithoutEntities();
+
+        statistics.clear();
+        StoreDTO byId = storeService.getStoreById(store.getId());
+        assertSingleQueryWithoutEntities();
+
+        assertThat(merchantStores).extracting(StoreDTO::getId).containsExactly(store.getId());
+        assertThat(allStores).hasSize(2);
+        assertThat(byId.getName()).isEqualTo("Corner shop");
+    }
+
+    @Test
+    void storeOwnershipCheckIsOneQuery() {
+        assertThatThrownBy(() -> transactionService.getTransactionsByStore(store.getId(), OTHER_MERCHANT_KEYCLOAK_ID, null, 20))
+                .isInstanceOf(UnauthorizedOperationException.class);
+        assertSingleQueryWithoutEntities();
+    }
+
+    @Test
+    void storePageIsTheOwnershipCheckPlusOnePageQuery() {
+        assertThat(transactionService.getTransactionsByStore(store.getId(), MERCHANT_KEYCLOAK_ID, null, 20).getItems())
+                .extracting(TransactionDTO::getId)
+                .containsExactly(transaction.getId());
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    private void assertSingleQueryWithoutEntities() {
+        assertThat(statistics.getPrepareStatementCount()).as("SQL statements").isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).as("entities loaded").isZero();
+        assertThat(statistics.getCollectionLoadCount()).as("collections loaded").isZero();
+    }
+
+    private void identity(User user) {
+        when(userIdentityCache.findByKeycloakId(user.getKeycloakId()))
+                .thenReturn(Optional.of(new UserIdentity(user.getId(), user.getKeycloakId(), user.getUsername(), user.getRole())));
+    }
+
+    private static User user(String username, String keycloakId, UserRole role) {
+        User user = User.createUser(username, username, username, username + "@example.com", role);
+        user.setKeycloakId(keycloakId);
+        return user;
+    }
+}
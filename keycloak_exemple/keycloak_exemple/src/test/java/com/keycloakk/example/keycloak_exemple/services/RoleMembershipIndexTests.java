@@ -0,0 +1,56 @@
+package com.keycloakk.example.keycloak_exemple.services;
+
+import com.keycloakk.example.keycloak_exemple.model.UserRole;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RoleMembershipIndexTests {
+
+    @Test
+    void resolvesAdminBeforeMerchantBeforeCustomer() {
+        RoleMembershipIndex index = new RoleMembershipIndex(Set.of("admin", "both"), Set.of("merchant", "both"));
+
+        assertThat(index.resolve("admin")).isEqualTo(UserRole.ADMIN);
+        assertThat(index.resolve("both")).isEqualTo(UserRole.ADMIN);
+        assertThat(index.resolve("merchant")).isEqualTo(UserRole.MERCHANT);
+        assertThat(index.resolve("someone-else")).isEqualTo(UserRole.CUSTOMER);
+    }
+
+    @Test
+    void grantingRolesWithoutCompositesAreTheTargets() {
+        assertThat(RoleMembershipIndex.grantingRoles(Map.of(), Set.of("MERCHANT"))).containsExactly("MERCHANT");
+    }
+
+    @Test
+    void grantingRolesIncludeDirectAndTransitiveCompositeParents() {
+        Map<String, Set<String>> composites = Map.of(
+                "store-owner", Set.of("MERCHANT", "offline_access"),
+                "regional-manager", Set.of("store-owner"),
+                "default-roles-springboot-test", Set.of("offline_access", "uma_authorization"));
+
+        assertThat(RoleMembershipIndex.grantingRoles(composites, Set.of("MERCHANT")))
+                .containsExactlyInAnyOrder("MERCHANT", "store-owner", "regional-manager");
+    }
+
+    @Test
+    void grantingRolesCompareNamesIgnoringCase() {
+        Map<String, Set<String>> composites = Map.of("super-admin", Set.of("admin"));
+
+        assertThat(RoleMembershipIndex.grantingRoles(composites, Set.of("ADMIN", "REALM-ADMIN")))
+                .containsExactlyInAnyOrder("ADMIN", "REALM-ADMIN", "super-admin");
+    }
+
+    @Test
+    void grantingRolesTerminateOnCompositeCycles() {
+        Map<String, Set<String>> composites = Map.of(
+                "a", Set.of("b"),
+                "b", Set.of("a", "MERCHANT"));
+
+        assertThat(RoleMembershipIndex.grantingRoles(composites, Set.of("MERCHANT")))
+                .containsExactlyInAnyOrder("MERCHANT", "a", "b");
+    }
+}
@@ -0,0 +1,81 @@
+package com.keycloakk.example.keycloak_exemple.services;
+
+import com.keycloakk.example.keycloak_exemple.dtos.TransactionBatchItemDTO;
+import com.keycloakk.example.keycloak_exemple.dtos.TransactionBatchItemResultDTO;
+import com.keycloakk.example.keycloak_exemple.dtos.TransactionBatchResultDTO;
+import com.keycloakk.example.keycloak_exemple.dtos.UserIdentity;
+import com.keycloakk.example.keycloak_exemple.model.UserRole;
+import com.keycloakk.example.keycloak_exemple.repositories.StoreRepository;
+import com.keycloakk.example.keycloak_exemple.repositories.TransactionRepository;
+import com.keycloakk.example.keycloak_exemple.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TransactionBatchServiceTests {
+
+    private static final String MERCHANT_ID = "merchant-kc";
+
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+    private final StoreRepository storeRepository = mock(StoreRepository.class);
+    private final UserIdentityCache userIdentityCache = mock(UserIdentityCache.class);
+    private TransactionBatchService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new TransactionBatchService(transactionRepository, storeRepository, mock(UserRepository.class),
+                userIdentityCache, mock(StoreDailyStatsService.class), new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(service, "chunkSize", 500);
+        when(userIdentityCache.findByKeycloakId(MERCHANT_ID))
+                .thenReturn(Optional.of(new UserIdentity(1L, MERCHANT_ID, "shop", UserRole.MERCHANT)));
+        when(storeRepository.findIdsByMerchantIdAndIdIn(eq(1L), anyCollection())).thenReturn(List.of(10L, 20L));
+    }
+
+    @Test
+    void acceptsCustomersWhoAlreadyBoughtAtTheStore() {
+        when(transactionRepository.findStoreCustomerPairs(any(), any()))
+                .thenReturn(List.<Object[]>of(new Object[]{10L, 100L}));
+
+        TransactionBatchResultDTO result = service.createTransactions(List.of(item(10L, 100L)).iterator(), MERCHANT_ID);
+
+        assertThat(result.getCreated()).isEqualTo(1);
+        assertThat(result.getRejected()).isZero();
+    }
+
+    @Test
+    void rejectsCustomersWithoutAPurchaseAtThatStore() {
+        // Le client 100 a déjà acheté au magasin 10, pas au magasin 20; le client 200 nulle part
+        when(transactionRepository.findStoreCustomerPairs(Set.of(10L, 20L), Set.of(100L, 200L)))
+                .thenReturn(List.<Object[]>of(new Object[]{10L, 100L}));
+
+        TransactionBatchResultDTO result = service.createTransactions(
+                List.of(item(20L, 100L), item(10L, 200L), item(10L, null)).iterator(), MERCHANT_ID);
+
+        assertThat(result.getCreated()).isEqualTo(1);
+        assertThat(result.getResults())
+                .filteredOn(itemResult -> itemResult.getOutcome() == TransactionBatchItemResultDTO.Outcome.REJECTED)
+                .extracting(TransactionBatchItemResultDTO::getIndex, TransactionBatchItemResultDTO::getError)
+                .containsExactly(
+                        tuple(0, "Customer 100 has no previous purchase at store 20"),
+                        tuple(1, "Customer 200 has no previous purchase at store 10"));
+    }
+
+    private static TransactionBatchItemDTO item(Long storeId, Long customerId) {
+        return new TransactionBatchItemDTO(new BigDecimal("9.90"), "pos", storeId, customerId, null);
+    }
+}
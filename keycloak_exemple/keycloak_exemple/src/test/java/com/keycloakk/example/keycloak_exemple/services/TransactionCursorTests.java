@@ -0,0 +1,68 @@
+package com.keycloakk.example.keycloak_exemple.services;
+
+import com.keycloakk.example.keycloak_exemple.exception.InvalidRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TransactionCursorTests {
+
+    @Test
+    void roundTripsThroughAnUrlSafeToken() {
+        TransactionCursor cursor = new TransactionCursor(LocalDateTime.of(2024, 3, 15, 10, 30, 5, 123456000), 98765L);
+
+        String token = cursor.encode();
+
+        assertThat(token).matches("[A-Za-z0-9_-]+");
+        assertThat(TransactionCursor.decode(token)).isEqualTo(cursor);
+    }
+
+    @Test
+    void roundTripsDatesWithoutSecondsOrFraction() {
+        TransactionCursor cursor = new TransactionCursor(LocalDateTime.of(2024, 1, 1, 0, 0), 1L);
+
+        assertThat(TransactionCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @Test
+    void absentCursorStartsBeforeTheFirstRow() {
+        assertThat(TransactionCursor.decode(null)).isEqualTo(TransactionCursor.START);
+        assertThat(TransactionCursor.decode("  ")).isEqualTo(TransactionCursor.START);
+    }
+
+    @Test
+    void rejectsTokensThatAreNotBase64() {
+        assertThatThrownBy(() -> TransactionCursor.decode("not a cursor!"))
+                .isInstanceOf(InvalidRequestException.class)
+                .hasMessageContaining("Invalid cursor");
+    }
+
+    @Test
+    void rejectsTamperedContent() {
+        assertThatThrownBy(() -> TransactionCursor.decode(token("2024-03-15T10:30:05")))
+                .isInstanceOf(InvalidRequestException.class);
+        assertThatThrownBy(() -> TransactionCursor.decode(token("2024-13-45T10:30:05|12")))
+                .isInstanceOf(InvalidRequestException.class);
+        assertThatThrownBy(() -> TransactionCursor.decode(token("2024-03-15T10:30:05|12; drop table transaction")))
+                .isInstanceOf(InvalidRequestException.class);
+        assertThatThrownBy(() -> TransactionCursor.decode(token("|12")))
+                .isInstanceOf(InvalidRequestException.class);
+    }
+
+    @Test
+    void rejectsAnEncodedTokenWithAppendedCharacters() {
+        String token = new TransactionCursor(LocalDateTime.of(2024, 3, 15, 10, 30), 12L).encode();
+
+        assertThatThrownBy(() -> TransactionCursor.decode(token + "x%"))
+                .isInstanceOf(InvalidRequestException.class);
+    }
+
+    private static String token(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,36 @@
+package com.keycloakk.example.keycloak_exemple.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransactionExportCsvTests {
+
+    @Test
+    void writesNullAsAnEmptyField() {
+        assertThat(TransactionExportService.csvField(null)).isEmpty();
+    }
+
+    @Test
+    void leavesPlainValuesUnquoted() {
+        assertThat(TransactionExportService.csvField("Coffee and croissant")).isEqualTo("Coffee and croissant");
+        assertThat(TransactionExportService.csvField("")).isEmpty();
+    }
+
+    @Test
+    void quotesValuesContainingTheSeparator() {
+        assertThat(TransactionExportService.csvField("coffee, croissant")).isEqualTo("\"coffee, croissant\"");
+    }
+
+    @Test
+    void doublesInnerQuotes() {
+        assertThat(TransactionExportService.csvField("the \"special\" menu")).isEqualTo("\"the \"\"special\"\" menu\"");
+        assertThat(TransactionExportService.csvField("\"")).isEqualTo("\"\"\"\"");
+    }
+
+    @Test
+    void quotesValuesContainingLineBreaks() {
+        assertThat(TransactionExportService.csvField("line 1\nline 2")).isEqualTo("\"line 1\nline 2\"");
+        assertThat(TransactionExportService.csvField("line 1\r\nline 2")).isEqualTo("\"line 1\r\nline 2\"");
+    }
+}
@@ -0,0 +1,128 @@
+package com.keycloakk.example.keycloak_exemple.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.keycloakk.example.keycloak_exemple.dtos.TransactionCreationDTO;
+import com.keycloakk.example.keycloak_exemple.dtos.TransactionDTO;
+import com.keycloakk.example.keycloak_exemple.model.TransactionIdempotencyKey;
+import com.keycloakk.example.keycloak_exemple.model.TransactionIdempotencyKeyId;
+import com.keycloakk.example.keycloak_exemple.model.TransactionStatus;
+import com.keycloakk.example.keycloak_exemple.repositories.TransactionIdempotencyKeyRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TransactionIdempotencyServiceTests {
+
+    private static final String CUSTOMER_ID = "6f1c2c1e-8f43-4a4b-9d6a-1d2b3c4d5e6f";
+    private static final String KEY = "retry-1";
+    private static final Duration TTL = Duration.ofHours(24);
+
+    private final TransactionService transactionService = mock(TransactionService.class);
+    private final TransactionIdempotencyKeyRepository repository = mock(TransactionIdempotencyKeyRepository.class);
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private TransactionIdempotencyService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new TransactionIdempotencyService(transactionService, repository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), objectMapper, meterRegistry, 1000, TTL);
+    }
+
+    @Test
+    void concurrentDuplicatesCreateOneTransaction() throws Exception {
+        CountDownLatch creating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(repository.claim(eq(CUSTOMER_ID), eq(KEY), anyString(), any(), any())).thenReturn(1);
+        when(transactionService.createTransaction(any(), eq(CUSTOMER_ID))).thenAnswer(invocation -> {
+            creating.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return transaction(1L);
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<TransactionDTO> first = executor.submit(() -> service.createTransaction(request(), CUSTOMER_ID, KEY));
+            assertThat(creating.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<TransactionDTO> duplicate = executor.submit(() -> service.createTransaction(request(), CUSTOMER_ID, KEY));
+            // The duplicate must be waiting on the original before it is allowed to finish
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (meterRegistry.counter("transaction.idempotency", "result", "coalesced").count() < 1
+                    && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS).getId()).isEqualTo(1L);
+            assertThat(duplicate.get(5, TimeUnit.SECONDS).getId()).isEqualTo(1L);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(meterRegistry.counter("transaction.idempotency", "result", "coalesced").count()).isEqualTo(1);
+        verify(transactionService, times(1)).createTransaction(any(), eq(CUSTOMER_ID));
+        verify(repository, times(1)).claim(eq(CUSTOMER_ID), eq(KEY), anyString(), any(), any());
+    }
+
+    @Test
+    void keyClaimedByAnotherInstanceIsReplayedFromTheTable() throws Exception {
+        when(repository.claim(eq(CUSTOMER_ID), eq(KEY), anyString(), any(), any())).thenReturn(0);
+        when(repository.findById(new TransactionIdempotencyKeyId(CUSTOMER_ID, KEY)))
+                .thenReturn(Optional.of(storedKey(LocalDateTime.now().minusHours(1))));
+
+        TransactionDTO replayed = service.createTransaction(request(), CUSTOMER_ID, KEY);
+
+        assertThat(replayed.getId()).isEqualTo(1L);
+        verify(transactionService, never()).createTransaction(any(), anyString());
+    }
+
+    @Test
+    void expiredKeyNotYetPurgedIsTreatedAsAbsent() throws Exception {
+        when(repository.claim(eq(CUSTOMER_ID), eq(KEY), anyString(), any(), any())).thenReturn(0, 1);
+        when(repository.findById(new TransactionIdempotencyKeyId(CUSTOMER_ID, KEY)))
+                .thenReturn(Optional.of(storedKey(LocalDateTime.now().minus(TTL).minusMinutes(1))));
+        when(transactionService.createTransaction(any(), eq(CUSTOMER_ID))).thenReturn(transaction(2L));
+
+        TransactionDTO created = service.createTransaction(request(), CUSTOMER_ID, KEY);
+
+        assertThat(created.getId()).isEqualTo(2L);
+        verify(repository).complete(eq(CUSTOMER_ID), eq(KEY), anyLong(), anyString());
+    }
+
+    private TransactionIdempotencyKey storedKey(LocalDateTime createdAt) throws Exception {
+        return new TransactionIdempotencyKey(new TransactionIdempotencyKeyId(CUSTOMER_ID, KEY),
+                TransactionIdempotencyService.fingerprint(request()), 1L, objectMapper.writeValueAsString(transaction(1L)), createdAt);
+    }
+
+    private static TransactionCreationDTO request() {
+        return new TransactionCreationDTO(new BigDecimal("19.90"), "Lunch", 42L);
+    }
+
+    private static TransactionDTO transaction(long id) {
+        return new TransactionDTO(id, new BigDecimal("19.90"), LocalDateTime.of(2025, 3, 1, 12, 0), "Lunch",
+                TransactionStatus.COMPLETED, CUSTOMER_ID, 42L);
+    }
+}
@@ -0,0 +1,83 @@
+package com.keycloakk.example.keycloak_exemple.services;
+
+import com.keycloakk.example.keycloak_exemple.dtos.TransactionCreationDTO;
+import com.keycloakk.example.keycloak_exemple.dtos.UserIdentity;
+import com.keycloakk.example.keycloak_exemple.exception.ResourceNotFoundException;
+import com.keycloakk.example.keycloak_exemple.model.UserRole;
+import com.keycloakk.example.keycloak_exemple.repositories.StoreDailyStatsRepository;
+import com.keycloakk.example.keycloak_exemple.repositories.StoreRepository;
+import com.keycloakk.example.keycloak_exemple.repositories.TransactionRepository;
+import com.keycloakk.example.keycloak_exemple.repositories.UserRepository;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TransactionServiceCreationTests {
+
+    private static final String CUSTOMER_ID = "6f1c2c1e-8f43-4a4b-9d6a-1d2b3c4d5e6f";
+
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+    private final UserIdentityCache userIdentityCache = mock(UserIdentityCache.class);
+    private TransactionService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new TransactionService(transactionRepository, mock(UserRepository.class), mock(StoreRepository.class),
+                userIdentityCache, mock(StoreDailyStatsService.class), mock(StoreDailyStatsRepository.class));
+        when(userIdentityCache.findByKeycloakId(CUSTOMER_ID))
+                .thenReturn(Optional.of(new UserIdentity(7L, CUSTOMER_ID, "jdoe", UserRole.CUSTOMER)));
+    }
+
+    @Test
+    void missingStoreIsReportedAsStoreNotFound() {
+        when(transactionRepository.saveAndFlush(any())).thenThrow(violation(TransactionService.FK_TRANSACTION_STORE));
+
+        assertThatThrownBy(() -> service.createTransaction(request(), CUSTOMER_ID))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessageContaining("Store not found with id: 42");
+        verify(userIdentityCache, never()).invalidate(any());
+    }
+
+    @Test
+    void deletedCustomerIsReportedAsCustomerNotFoundAndEvicted() {
+        when(transactionRepository.saveAndFlush(any())).thenThrow(violation(TransactionService.FK_TRANSACTION_CUSTOMER));
+
+        assertThatThrownBy(() -> service.createTransaction(request(), CUSTOMER_ID))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessageContaining("Customer not found");
+        verify(userIdentityCache).invalidate(CUSTOMER_ID);
+    }
+
+    @Test
+    void otherIntegrityViolationsAreRethrown() {
+        DataIntegrityViolationException notNull = violation(null);
+        when(transactionRepository.saveAndFlush(any())).thenThrow(notNull);
+
+        assertThatThrownBy(() -> service.createTransaction(request(), CUSTOMER_ID)).isSameAs(notNull);
+    }
+
+    private static TransactionCreationDTO request() {
+        TransactionCreationDTO request = new TransactionCreationDTO();
+        request.setAmount(new BigDecimal("12.50"));
+        request.setDescription("coffee");
+        request.setStoreId(42L);
+        return request;
+    }
+
+    private static DataIntegrityViolationException violation(String constraintName) {
+        return new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("violation", new SQLException("violation", "23503"), constraintName));
+    }
+}
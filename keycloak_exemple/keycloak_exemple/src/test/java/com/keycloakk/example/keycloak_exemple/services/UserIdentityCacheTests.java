@@ -0,0 +1,107 @@
+package com.keycloakk.example.keycloak_exemple.services;
+
+import com.keycloakk.example.keycloak_exemple.dtos.UserIdentity;
+import com.keycloakk.example.keycloak_exemple.model.UserRole;
+import com.keycloakk.example.keycloak_exemple.repositories.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserIdentityCacheTests {
+
+    private static final String KEYCLOAK_ID = "6f1c2c1e-8f43-4a4b-9d6a-1d2b3c4d5e6f";
+    private static final UserIdentity IDENTITY = new UserIdentity(7L, KEYCLOAK_ID, "jdoe", UserRole.CUSTOMER);
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private UserIdentityCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new UserIdentityCache(userRepository, meterRegistry, 100, Duration.ofMinutes(5));
+    }
+
+    @Test
+    void hitPathMakesNoRepositoryCall() {
+        when(userRepository.findIdentityByKeycloakId(KEYCLOAK_ID)).thenReturn(Optional.of(IDENTITY));
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(cache.findByKeycloakId(KEYCLOAK_ID)).contains(IDENTITY);
+        }
+
+        verify(userRepository, times(1)).findIdentityByKeycloakId(KEYCLOAK_ID);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "userIdentity").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(999);
+    }
+
+    @Test
+    void concurrentRequestsForTheSameUserLoadItOnce() throws Exception {
+        int callers = 16;
+        when(userRepository.findIdentityByKeycloakId(KEYCLOAK_ID)).thenAnswer(invocation -> {
+            Thread.sleep(50);
+            return Optional.of(IDENTITY);
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Optional<UserIdentity>>> results = new ArrayList<>();
+            for (int caller = 0; caller < callers; caller++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    Optional<UserIdentity> identity = Optional.empty();
+                    for (int call = 0; call < 100; call++) {
+                        identity = cache.findByKeycloakId(KEYCLOAK_ID);
+                    }
+                    return identity;
+                }));
+            }
+            start.countDown();
+            for (Future<Optional<UserIdentity>> result : results) {
+                assertThat(result.get(10, TimeUnit.SECONDS)).contains(IDENTITY);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(userRepository, times(1)).findIdentityByKeycloakId(KEYCLOAK_ID);
+    }
+
+    @Test
+    void unknownUsersAreNotCached() {
+        when(userRepository.findIdentityByKeycloakId(KEYCLOAK_ID)).thenReturn(Optional.empty(), Optional.of(IDENTITY));
+
+        assertThat(cache.findByKeycloakId(KEYCLOAK_ID)).isEmpty();
+        assertThat(cache.findByKeycloakId(KEYCLOAK_ID)).contains(IDENTITY);
+
+        verify(userRepository, times(2)).findIdentityByKeycloakId(KEYCLOAK_ID);
+    }
+
+    @Test
+    void invalidatedUserIsReloaded() {
+        UserIdentity merchant = new UserIdentity(7L, KEYCLOAK_ID, "jdoe", UserRole.MERCHANT);
+        when(userRepository.findIdentityByKeycloakId(KEYCLOAK_ID)).thenReturn(Optional.of(IDENTITY), Optional.of(merchant));
+
+        assertThat(cache.findByKeycloakId(KEYCLOAK_ID)).contains(IDENTITY);
+        cache.invalidate(KEYCLOAK_ID);
+
+        assertThat(cache.findByKeycloakId(KEYCLOAK_ID)).contains(merchant);
+        verify(userRepository, times(2)).findIdentityByKeycloakId(KEYCLOAK_ID);
+    }
+}
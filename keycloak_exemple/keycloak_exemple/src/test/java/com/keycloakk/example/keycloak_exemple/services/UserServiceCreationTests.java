@@ -0,0 +1,60 @@
+package com.keycloakk.example.keycloak_exemple.services;
+
+import com.keycloakk.example.keycloak_exemple.dtos.UserCreationDTO;
+import com.keycloakk.example.keycloak_exemple.model.UserRole;
+import com.keycloakk.example.keycloak_exemple.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserServiceCreationTests {
+
+    private static final String KEYCLOAK_ID = "6f1c2c1e-8f43-4a4b-9d6a-1d2b3c4d5e6f";
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final KeycloakService keycloakService = mock(KeycloakService.class);
+    private UserService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new UserService(userRepository, keycloakService, mock(KeycloakOutboxService.class),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), mock(UserIdentityCache.class),
+                mock(StoreDailyStatsService.class));
+        when(keycloakService.createKeycloakUser(any(), anyString())).thenReturn(KEYCLOAK_ID);
+    }
+
+    @Test
+    void databaseFailureRemovesTheKeycloakUser() {
+        DataIntegrityViolationException failure = new DataIntegrityViolationException("duplicate key");
+        when(userRepository.save(any())).thenThrow(failure);
+
+        assertThatThrownBy(() -> service.createUser(request())).isSameAs(failure);
+        verify(keycloakService).deleteKeycloakUser(KEYCLOAK_ID);
+    }
+
+    @Test
+    void failedCompensationIsSuppressedUnderTheDatabaseFailure() {
+        DataIntegrityViolationException failure = new DataIntegrityViolationException("duplicate key");
+        IllegalStateException keycloakDown = new IllegalStateException("Keycloak unavailable");
+        when(userRepository.save(any())).thenThrow(failure);
+        doThrow(keycloakDown).when(keycloakService).deleteKeycloakUser(KEYCLOAK_ID);
+
+        assertThatThrownBy(() -> service.createUser(request())).isSameAs(failure);
+        assertThat(failure.getSuppressed()).containsExactly(keycloakDown);
+    }
+
+    private static UserCreationDTO request() {
+        return new UserCreationDTO("jdoe", "secret", "John", "Doe", "jdoe@example.com", UserRole.CUSTOMER);
+    }
+}